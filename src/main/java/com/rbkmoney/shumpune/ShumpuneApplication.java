@@ -3,7 +3,9 @@ package com.rbkmoney.shumpune;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.web.servlet.ServletComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
+@EnableScheduling
 @ServletComponentScan
 @SpringBootApplication
 public class ShumpuneApplication extends SpringApplication {
@@ -0,0 +1,71 @@
+package com.rbkmoney.shumpune.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.rbkmoney.damsel.shumpune.Account;
+import com.rbkmoney.shumpune.config.AccountCacheProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class AccountCache {
+
+    private final boolean enabled;
+    private final Cache<Long, Account> cache;
+    // accounts are created on any node, so a miss is only remembered for a short time
+    private final Cache<Long, Boolean> missing;
+
+    public AccountCache(AccountCacheProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .recordStats()
+                .build();
+        this.missing = CacheBuilder.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getNegativeTtlMs(), TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(meterRegistry, cache, "account");
+        GuavaCacheMetrics.monitor(meterRegistry, missing, "account_missing");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Account get(Long accountId) {
+        if (!enabled) {
+            return null;
+        }
+        Account account = cache.getIfPresent(accountId);
+        return account != null ? account.deepCopy() : null;
+    }
+
+    public boolean isMissing(Long accountId) {
+        return enabled && missing.getIfPresent(accountId) != null;
+    }
+
+    public void put(Account account) {
+        if (!enabled) {
+            return;
+        }
+        missing.invalidate(account.getId());
+        cache.put(account.getId(), account.deepCopy());
+    }
+
+    public void putMissing(Long accountId) {
+        if (!enabled) {
+            return;
+        }
+        missing.put(accountId, Boolean.TRUE);
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+}
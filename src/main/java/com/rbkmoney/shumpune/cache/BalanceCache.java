@@ -0,0 +1,42 @@
+package com.rbkmoney.shumpune.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.rbkmoney.shumpune.config.BalanceCacheProperties;
+import com.rbkmoney.shumpune.domain.BalanceModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.stereotype.Component;
+
+@Component
+public class BalanceCache {
+
+    private final boolean enabled;
+    private final Cache<Long, BalanceModel> cache;
+
+    public BalanceCache(BalanceCacheProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(meterRegistry, cache, "balance");
+    }
+
+    public BalanceModel get(Long accountId) {
+        if (!enabled) {
+            return null;
+        }
+        BalanceModel balance = cache.getIfPresent(accountId);
+        return balance != null ? balance.toBuilder().build() : null;
+    }
+
+    public void put(BalanceModel balance) {
+        if (!enabled) {
+            return;
+        }
+        cache.asMap().merge(balance.getAccountId(), balance.toBuilder().build(),
+                (cached, fresh) -> fresh.getClock() >= cached.getClock() ? fresh : cached);
+    }
+
+}
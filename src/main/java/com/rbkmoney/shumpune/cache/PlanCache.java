@@ -0,0 +1,53 @@
+package com.rbkmoney.shumpune.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.rbkmoney.damsel.shumpune.PostingBatch;
+import com.rbkmoney.damsel.shumpune.PostingPlan;
+import com.rbkmoney.shumpune.config.PlanCacheProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds finalized plans only, their postings do not change any more. Weighted by posting count.
+ * Writes invalidate entries after commit on this node only, other nodes are not notified and keep theirs until evicted.
+ */
+@Component
+public class PlanCache {
+
+    private final boolean enabled;
+    private final Cache<String, PostingPlan> cache;
+
+    public PlanCache(PlanCacheProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(properties.getMaximumPostings())
+                .weigher((String planId, PostingPlan plan) -> plan.getBatchList().stream()
+                        .mapToInt(PostingBatch::getPostingsSize)
+                        .sum())
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(meterRegistry, cache, "plan");
+    }
+
+    public PostingPlan get(String planId) {
+        if (!enabled) {
+            return null;
+        }
+        PostingPlan plan = cache.getIfPresent(planId);
+        return plan != null ? plan.deepCopy() : null;
+    }
+
+    public void put(PostingPlan plan) {
+        if (!enabled) {
+            return;
+        }
+        cache.put(plan.getId(), plan.deepCopy());
+    }
+
+    public void invalidate(String planId) {
+        cache.invalidate(planId);
+    }
+
+}
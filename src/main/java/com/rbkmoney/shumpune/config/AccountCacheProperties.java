@@ -0,0 +1,18 @@
+package com.rbkmoney.shumpune.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "cache.account")
+public class AccountCacheProperties {
+
+    private boolean enabled = true;
+    private long maximumSize = 100000L;
+    private long negativeTtlMs = 1000L;
+    private boolean warmupEnabled = false;
+    private int warmupSize = 10000;
+
+}
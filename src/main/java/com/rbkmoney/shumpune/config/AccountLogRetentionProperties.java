@@ -0,0 +1,17 @@
+package com.rbkmoney.shumpune.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "account-log.retention")
+public class AccountLogRetentionProperties {
+
+    private boolean enabled;
+    private long fixedDelayMs = 3600000L;
+    private long denseHours = 24L;
+    private long hourlyDays = 30L;
+
+}
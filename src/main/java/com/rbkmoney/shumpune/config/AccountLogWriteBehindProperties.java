@@ -0,0 +1,17 @@
+package com.rbkmoney.shumpune.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "account-log.write-behind")
+public class AccountLogWriteBehindProperties {
+
+    private boolean enabled;
+    private int maxPending = 10000;
+    private int batchSize = 500;
+    private long flushIntervalMs = 1000L;
+
+}
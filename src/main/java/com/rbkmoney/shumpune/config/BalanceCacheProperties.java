@@ -0,0 +1,15 @@
+package com.rbkmoney.shumpune.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "cache.balance")
+public class BalanceCacheProperties {
+
+    private boolean enabled = true;
+    private long maximumSize = 10000L;
+
+}
@@ -0,0 +1,14 @@
+package com.rbkmoney.shumpune.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "balance.coalescing")
+public class BalanceCoalescingProperties {
+
+    private boolean enabled = true;
+
+}
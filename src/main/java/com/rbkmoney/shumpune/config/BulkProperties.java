@@ -0,0 +1,14 @@
+package com.rbkmoney.shumpune.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "bulk")
+public class BulkProperties {
+
+    private int maxBatchSize = 1000;
+
+}
@@ -0,0 +1,18 @@
+package com.rbkmoney.shumpune.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "checkpoint")
+public class CheckpointProperties {
+
+    private boolean enabled;
+    private long fixedDelayMs = 60000L;
+    private long lagThreshold = 1000L;
+    private int workers = 4;
+    private int budget = 100;
+
+}
@@ -0,0 +1,47 @@
+package com.rbkmoney.shumpune.config;
+
+import com.rbkmoney.shumpune.routing.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @Primary
+    public ReplicaRoutingDataSource dataSource(DataSourceProperties properties,
+                                               ReplicaProperties replicaProperties,
+                                               Environment environment) {
+        HikariDataSource primaryDataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primaryDataSource));
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        if (replicaProperties.isEnabled()) {
+            for (ReplicaProperties.Replica replica : replicaProperties.getDatasources()) {
+                HikariDataSource dataSource = DataSourceBuilder.create()
+                        .type(HikariDataSource.class)
+                        .driverClassName(primaryDataSource.getDriverClassName())
+                        .url(replica.getUrl())
+                        .username(replica.getUsername())
+                        .password(replica.getPassword())
+                        .build();
+                dataSource.setPoolName("replica-" + replica.getName());
+                dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+                dataSource.setReadOnly(true);
+                replicas.put(replica.getName(), dataSource);
+            }
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas);
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.rbkmoney.shumpune.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "group-commit")
+public class GroupCommitProperties {
+
+    private boolean enabled;
+    private long windowMs = 2L;
+    private int maxBatchSize = 100;
+    private int queueCapacity = 10000;
+    private long timeoutMs = 30000L;
+
+}
@@ -0,0 +1,18 @@
+package com.rbkmoney.shumpune.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the whole hold in shm.hold_posting_batch, one database round trip per request
+ * instead of one per validation, lookup and insert.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "hold-function")
+public class HoldFunctionProperties {
+
+    private boolean enabled;
+
+}
@@ -0,0 +1,15 @@
+package com.rbkmoney.shumpune.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "cache.plan")
+public class PlanCacheProperties {
+
+    private boolean enabled = true;
+    private long maximumPostings = 1000000L;
+
+}
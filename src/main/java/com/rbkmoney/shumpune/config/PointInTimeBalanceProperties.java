@@ -0,0 +1,14 @@
+package com.rbkmoney.shumpune.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "balance.point-in-time")
+public class PointInTimeBalanceProperties {
+
+    private boolean enabled;
+
+}
@@ -0,0 +1,16 @@
+package com.rbkmoney.shumpune.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "posting-log.archive")
+public class PostingLogArchiveProperties {
+
+    private boolean enabled = false;
+    private int keepPartitions = 2;
+    private long checkIntervalMs = 3600000L;
+
+}
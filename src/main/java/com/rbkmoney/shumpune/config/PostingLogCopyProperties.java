@@ -0,0 +1,15 @@
+package com.rbkmoney.shumpune.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "posting-log.copy")
+public class PostingLogCopyProperties {
+
+    private boolean enabled = true;
+    private int threshold = 1000;
+
+}
@@ -0,0 +1,17 @@
+package com.rbkmoney.shumpune.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "posting-log.partition")
+public class PostingLogPartitionProperties {
+
+    private boolean enabled = true;
+    private long size = 10000000L;
+    private int ahead = 2;
+    private long checkIntervalMs = 3600000L;
+
+}
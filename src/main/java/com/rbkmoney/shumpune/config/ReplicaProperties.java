@@ -0,0 +1,30 @@
+package com.rbkmoney.shumpune.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "replica")
+public class ReplicaProperties {
+
+    private boolean enabled;
+    private long pollIntervalMs = 100L;
+    private List<Replica> datasources = new ArrayList<>();
+
+    @Data
+    public static class Replica {
+
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+
+    }
+
+}
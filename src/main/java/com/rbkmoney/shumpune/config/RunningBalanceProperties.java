@@ -0,0 +1,18 @@
+package com.rbkmoney.shumpune.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Running balances are backfilled by V3 and then kept up to date only while enabled,
+ * so switching this on after a period with it off requires the table to be rebuilt.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "balance.running")
+public class RunningBalanceProperties {
+
+    private boolean enabled;
+
+}
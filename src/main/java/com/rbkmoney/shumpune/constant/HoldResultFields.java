@@ -0,0 +1,13 @@
+package com.rbkmoney.shumpune.constant;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class HoldResultFields {
+
+    public static final String STATUS = "status";
+    public static final String CLOCK = "clock";
+    public static final String ERRORS = "errors";
+
+}
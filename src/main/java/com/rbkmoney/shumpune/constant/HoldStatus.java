@@ -0,0 +1,10 @@
+package com.rbkmoney.shumpune.constant;
+
+public enum HoldStatus {
+
+    OK,
+    DUPLICATE,
+    INVALID_POSTINGS,
+    INVALID_REQUEST
+
+}
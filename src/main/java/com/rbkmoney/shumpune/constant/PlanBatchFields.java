@@ -0,0 +1,16 @@
+package com.rbkmoney.shumpune.constant;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class PlanBatchFields {
+
+    public static final String PLAN_ID = "plan_id";
+    public static final String BATCH_ID = "batch_id";
+    public static final String OPERATION = "operation";
+    public static final String SIZE = "size";
+    public static final String FINGERPRINT = "fingerprint";
+    public static final String CLOCK = "clock";
+
+}
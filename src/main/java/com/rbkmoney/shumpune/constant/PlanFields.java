@@ -0,0 +1,15 @@
+package com.rbkmoney.shumpune.constant;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class PlanFields {
+
+    public static final String ID = "id";
+    public static final String STATUS = "status";
+    public static final String MAX_BATCH_ID = "max_batch_id";
+    public static final String CLOCK = "clock";
+    public static final String POSTING_COUNT = "posting_count";
+
+}
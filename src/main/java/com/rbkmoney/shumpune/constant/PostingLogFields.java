@@ -6,6 +6,7 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class PostingLogFields {
 
+    public static final String ID = "id";
     public static final String PLAN_ID = "plan_id";
     public static final String OPERATION = "operation";
     public static final String BATCH_ID = "batch_id";
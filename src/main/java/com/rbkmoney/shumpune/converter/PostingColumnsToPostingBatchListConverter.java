@@ -0,0 +1,37 @@
+package com.rbkmoney.shumpune.converter;
+
+import com.rbkmoney.damsel.shumpune.Posting;
+import com.rbkmoney.damsel.shumpune.PostingBatch;
+import com.rbkmoney.shumpune.domain.PostingColumns;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class PostingColumnsToPostingBatchListConverter implements Converter<PostingColumns, List<PostingBatch>> {
+
+    @Override
+    public List<PostingBatch> convert(PostingColumns columns) {
+        Map<Long, PostingBatch> batches = new LinkedHashMap<>();
+        PostingBatch batch = null;
+        for (int i = 0; i < columns.size(); i++) {
+            // rows come grouped by batch, the map is only consulted when the batch changes
+            if (batch == null || batch.getId() != columns.getBatchId(i)) {
+                batch = batches.computeIfAbsent(columns.getBatchId(i),
+                        batchId -> new PostingBatch().setId(batchId).setPostings(new ArrayList<>()));
+            }
+            batch.getPostings().add(new Posting()
+                    .setAmount(columns.getAmount(i))
+                    .setCurrencySymCode(columns.getCurrencySymCode(i))
+                    .setFromId(columns.getFromId(i))
+                    .setToId(columns.getToId(i))
+                    .setDescription(columns.getDescription(i)));
+        }
+        return new ArrayList<>(batches.values());
+    }
+
+}
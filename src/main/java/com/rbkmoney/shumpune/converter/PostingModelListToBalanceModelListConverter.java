@@ -0,0 +1,54 @@
+package com.rbkmoney.shumpune.converter;
+
+import com.rbkmoney.shumpune.domain.BalanceModel;
+import com.rbkmoney.shumpune.domain.PostingModel;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Component
+public class PostingModelListToBalanceModelListConverter {
+
+    public List<BalanceModel> convert(List<PostingModel> postingModels, long clock) {
+        // sorted by account id so that concurrent transactions lock balance rows in the same order
+        Map<Long, BalanceModel> deltas = new TreeMap<>();
+        for (PostingModel postingModel : postingModels) {
+            long amount = postingModel.getAmount();
+            BalanceModel from = deltas.computeIfAbsent(postingModel.getAccountFromId(), accountId -> emptyDelta(accountId, clock));
+            BalanceModel to = deltas.computeIfAbsent(postingModel.getAccountToId(), accountId -> emptyDelta(accountId, clock));
+            switch (postingModel.getOperation()) {
+                case HOLD:
+                    from.setMinAvailableAmount(from.getMinAvailableAmount() - amount);
+                    to.setMaxAvailableAmount(to.getMaxAvailableAmount() + amount);
+                    break;
+                case COMMIT:
+                    from.setOwnAmount(from.getOwnAmount() - amount);
+                    from.setMaxAvailableAmount(from.getMaxAvailableAmount() - amount);
+                    to.setOwnAmount(to.getOwnAmount() + amount);
+                    to.setMinAvailableAmount(to.getMinAvailableAmount() + amount);
+                    break;
+                case ROLLBACK:
+                    from.setMinAvailableAmount(from.getMinAvailableAmount() + amount);
+                    to.setMaxAvailableAmount(to.getMaxAvailableAmount() - amount);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown posting operation: " + postingModel.getOperation());
+            }
+        }
+        return new ArrayList<>(deltas.values());
+    }
+
+    private BalanceModel emptyDelta(Long accountId, long clock) {
+        return BalanceModel.builder()
+                .accountId(accountId)
+                .ownAmount(0L)
+                .maxAvailableAmount(0L)
+                .minAvailableAmount(0L)
+                .clock(clock)
+                .build();
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.rbkmoney.shumpune.dao;
+
+import com.rbkmoney.shumpune.domain.BalanceModel;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface AccountBalanceDao {
+
+    void addDeltas(List<BalanceModel> deltas);
+
+    BalanceModel getBalanceById(Long accountId);
+
+    Map<Long, BalanceModel> getBalancesByIds(Collection<Long> accountIds);
+
+    void lockForUpdate(Collection<Long> accountIds);
+
+}
@@ -0,0 +1,124 @@
+package com.rbkmoney.shumpune.dao;
+
+import com.rbkmoney.shumpune.dao.mapper.BalanceModelMapper;
+import com.rbkmoney.shumpune.domain.BalanceModel;
+import com.rbkmoney.shumpune.exception.DaoException;
+import com.rbkmoney.shumpune.utils.SqlArrayUtils;
+import org.springframework.core.NestedRuntimeException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcDaoSupport;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class AccountBalanceDaoImpl extends NamedParameterJdbcDaoSupport implements AccountBalanceDao {
+
+    private final RowMapper<BalanceModel> balanceRowMapper;
+
+    public AccountBalanceDaoImpl(DataSource ds, BalanceModelMapper balanceModelMapper) {
+        setDataSource(ds);
+        this.balanceRowMapper = balanceModelMapper;
+    }
+
+    @Override
+    public void addDeltas(List<BalanceModel> deltas) {
+        final String sql =
+                "INSERT INTO shm.account_balance AS balance(account_id, own_amount, max_available_amount, " +
+                        "min_available_amount, clock) " +
+                        "VALUES (:accountId, :ownAmount, :maxAvailableAmount, :minAvailableAmount, :clock) " +
+                        "ON CONFLICT (account_id) DO UPDATE SET " +
+                        "own_amount = balance.own_amount + EXCLUDED.own_amount, " +
+                        "max_available_amount = balance.max_available_amount + EXCLUDED.max_available_amount, " +
+                        "min_available_amount = balance.min_available_amount + EXCLUDED.min_available_amount, " +
+                        "clock = greatest(balance.clock, EXCLUDED.clock)";
+        SqlParameterSource[] batch = deltas.stream()
+                .map(delta -> new MapSqlParameterSource()
+                        .addValue("accountId", delta.getAccountId())
+                        .addValue("ownAmount", delta.getOwnAmount())
+                        .addValue("maxAvailableAmount", delta.getMaxAvailableAmount())
+                        .addValue("minAvailableAmount", delta.getMinAvailableAmount())
+                        .addValue("clock", delta.getClock()))
+                .toArray(SqlParameterSource[]::new);
+        try {
+            int[] updateCounts = getNamedParameterJdbcTemplate().batchUpdate(sql, batch);
+            for (int updateCount : updateCounts) {
+                if (updateCount != 1) {
+                    throw new DaoException("Account_balance update returned unexpected update count: " + updateCount);
+                }
+            }
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
+    }
+
+    @Override
+    public BalanceModel getBalanceById(Long accountId) {
+        final String sql =
+                "select account_id, own_amount, max_available_amount, min_available_amount, clock " +
+                        "from shm.account_balance " +
+                        "where account_id = :accId";
+        MapSqlParameterSource params = new MapSqlParameterSource("accId", accountId);
+        try {
+            List<BalanceModel> balances = getNamedParameterJdbcTemplate().query(sql, params, balanceRowMapper);
+            if (!balances.isEmpty()) {
+                return balances.get(0);
+            }
+            return emptyBalance(accountId);
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
+    }
+
+    @Override
+    public Map<Long, BalanceModel> getBalancesByIds(Collection<Long> accountIds) {
+        final String sql =
+                "select account_id, own_amount, max_available_amount, min_available_amount, clock " +
+                        "from shm.account_balance " +
+                        "where account_id = any(:accIds)";
+        MapSqlParameterSource params = new MapSqlParameterSource("accIds", SqlArrayUtils.bigintArray(accountIds));
+        try {
+            Map<Long, BalanceModel> balances = new LinkedHashMap<>();
+            getNamedParameterJdbcTemplate().query(sql, params, balanceRowMapper)
+                    .forEach(balance -> balances.put(balance.getAccountId(), balance));
+            accountIds.forEach(accountId -> balances.computeIfAbsent(accountId, this::emptyBalance));
+            return balances;
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
+    }
+
+    @Override
+    public void lockForUpdate(Collection<Long> accountIds) {
+        // rows are locked in the order they are returned, the same order addDeltas writes them
+        final String sql =
+                "select account_id " +
+                        "from shm.account_balance " +
+                        "where account_id = any(:accIds) " +
+                        "order by account_id " +
+                        "for update";
+        MapSqlParameterSource params = new MapSqlParameterSource("accIds", SqlArrayUtils.bigintArray(accountIds));
+        try {
+            getNamedParameterJdbcTemplate().queryForList(sql, params, Long.class);
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
+    }
+
+    private BalanceModel emptyBalance(Long accountId) {
+        return BalanceModel.builder()
+                .accountId(accountId)
+                .ownAmount(0L)
+                .maxAvailableAmount(0L)
+                .minAvailableAmount(0L)
+                .clock(0L)
+                .build();
+    }
+
+}
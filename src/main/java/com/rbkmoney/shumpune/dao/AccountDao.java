@@ -2,8 +2,9 @@ package com.rbkmoney.shumpune.dao;
 
 import com.rbkmoney.damsel.shumpune.Account;
 import com.rbkmoney.damsel.shumpune.AccountPrototype;
-import com.rbkmoney.shumpune.domain.BalanceModel;
-
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface AccountDao {
@@ -11,4 +12,9 @@ public interface AccountDao {
     Long insert(AccountPrototype account);
 
     Optional<Account> getAccountById(Long id);
+
+    Map<Long, Account> getAccountsByIds(Collection<Long> ids);
+
+    List<Account> getRecentlyActiveAccounts(int limit);
+
 }
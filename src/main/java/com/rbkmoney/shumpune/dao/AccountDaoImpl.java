@@ -5,6 +5,7 @@ import com.rbkmoney.damsel.shumpune.AccountPrototype;
 import com.rbkmoney.geck.common.util.TypeUtil;
 import com.rbkmoney.shumpune.dao.mapper.AccountMapper;
 import com.rbkmoney.shumpune.exception.DaoException;
+import com.rbkmoney.shumpune.utils.SqlArrayUtils;
 import org.springframework.core.NestedRuntimeException;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcDaoSupport;
@@ -16,7 +17,10 @@ import java.sql.Types;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -69,6 +73,39 @@ public class AccountDaoImpl extends NamedParameterJdbcDaoSupport implements Acco
         }
     }
 
+    @Override
+    public Map<Long, Account> getAccountsByIds(Collection<Long> ids) {
+        final String sql =
+                "select id, curr_sym_code, creation_time, description " +
+                        "from shm.account " +
+                        "where id = any(:ids)";
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", SqlArrayUtils.bigintArray(ids));
+        try {
+            Map<Long, Account> accounts = new LinkedHashMap<>();
+            getNamedParameterJdbcTemplate().query(sql, params, accountMapper)
+                    .forEach(account -> accounts.put(account.getId(), account));
+            return accounts;
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
+    }
+
+    @Override
+    public List<Account> getRecentlyActiveAccounts(int limit) {
+        final String sql =
+                "select id, curr_sym_code, creation_time, description " +
+                        "from shm.account " +
+                        "where id in (" +
+                        "   select account_id from (" +
+                        "       select from_account_id, to_account_id from shm.posting_log order by id desc limit :limit) p " +
+                        "   cross join lateral (values (from_account_id), (to_account_id)) as acc(account_id))";
+        try {
+            return getNamedParameterJdbcTemplate().query(sql, new MapSqlParameterSource("limit", limit), accountMapper);
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
+    }
+
     private LocalDateTime getInstant(AccountPrototype prototype) {
         return toLocalDateTime(prototype.isSetCreationTime() ? TypeUtil.stringToInstant(prototype.getCreationTime()) : Instant.now());
     }
@@ -2,10 +2,27 @@ package com.rbkmoney.shumpune.dao;
 
 import com.rbkmoney.shumpune.domain.BalanceModel;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 public interface AccountLogDao {
 
     Long insert(BalanceModel balanceModel);
 
+    void insertBatch(List<BalanceModel> balanceModels);
+
     BalanceModel getLastBalanceById(Long id);
 
+    BalanceModel getBalanceAtClock(Long id, long clock);
+
+    Map<Long, BalanceModel> getLastBalancesByIds(Collection<Long> ids);
+
+    Map<Long, BalanceModel> getBalancesAtClock(Collection<Long> ids, long clock);
+
+    LocalDateTime getFirstCreationTime(LocalDateTime from, LocalDateTime to);
+
+    int deleteSparseCheckpoints(LocalDateTime from, LocalDateTime to, LocalDateTime hourlyFrom);
+
 }
@@ -3,10 +3,12 @@ package com.rbkmoney.shumpune.dao;
 import com.rbkmoney.shumpune.dao.mapper.BalanceModelMapper;
 import com.rbkmoney.shumpune.domain.BalanceModel;
 import com.rbkmoney.shumpune.exception.DaoException;
+import com.rbkmoney.shumpune.utils.SqlArrayUtils;
 import org.springframework.core.NestedRuntimeException;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcDaoSupport;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Service;
 
@@ -15,11 +17,21 @@ import java.sql.Types;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class AccountLogDaoImpl extends NamedParameterJdbcDaoSupport implements AccountLogDao {
 
+    static final String SQL_GET_LAST_BALANCE_BY_ID =
+            "select id, account_id, own_amount, max_available_amount, min_available_amount, clock " +
+                    "from shm.account_log " +
+                    "where account_id = :accId " +
+                    "order by clock desc " +
+                    "limit 1";
+
     private final RowMapper<BalanceModel> balanceRowMapper;
 
     public AccountLogDaoImpl(DataSource ds, BalanceModelMapper balanceModelMapper) {
@@ -54,21 +66,54 @@ public class AccountLogDaoImpl extends NamedParameterJdbcDaoSupport implements A
         }
     }
 
+    @Override
+    public void insertBatch(List<BalanceModel> balanceModels) {
+        final String sql =
+                "INSERT INTO shm.account_log(account_id, own_amount, max_available_amount, " +
+                        "min_available_amount, clock, creation_time) " +
+                        "VALUES (:accountId, :ownAmount, :maxAvailableAmount, :minAvailableAmount, :clock, :creationTime)";
+        LocalDateTime creationTime = LocalDateTime.ofInstant(Instant.now(), ZoneOffset.UTC);
+        SqlParameterSource[] batch = balanceModels.stream()
+                .map(balanceModel -> new MapSqlParameterSource()
+                        .addValue("accountId", balanceModel.getAccountId())
+                        .addValue("ownAmount", balanceModel.getOwnAmount())
+                        .addValue("maxAvailableAmount", balanceModel.getMaxAvailableAmount())
+                        .addValue("minAvailableAmount", balanceModel.getMinAvailableAmount())
+                        .addValue("clock", balanceModel.getClock())
+                        .addValue("creationTime", creationTime, Types.OTHER))
+                .toArray(SqlParameterSource[]::new);
+        try {
+            getNamedParameterJdbcTemplate().batchUpdate(sql, batch);
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
+    }
+
     @Override
     public BalanceModel getLastBalanceById(Long id) {
         MapSqlParameterSource params = new MapSqlParameterSource("accId", id);
+        try {
+            List<BalanceModel> query = getNamedParameterJdbcTemplate()
+                    .query(SQL_GET_LAST_BALANCE_BY_ID, params, balanceRowMapper);
+            if (!query.isEmpty()) {
+                return query.get(0);
+            }
+            return null;
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
+    }
+
+    @Override
+    public BalanceModel getBalanceAtClock(Long id, long clock) {
+        MapSqlParameterSource params = new MapSqlParameterSource("accId", id)
+                .addValue("clock", clock);
         final String sql =
-                "with max_clock_account as " +
-                        "(select account_id, max(clock) maxClock" +
-                        "    from shm.account_log" +
-                        "    group by account_id" +
-                        "    having account_id = :accId) " +
-                        "select shm.account_log.id, shm.account_log.account_id, shm.account_log.own_amount, shm.account_log.max_available_amount, " +
-                        " shm.account_log.min_available_amount, shm.account_log.clock " +
-                        "from   max_clock_account " +
-                        "inner join shm.account_log " +
-                        "on         shm.account_log.account_id = max_clock_account.account_id " +
-                        "and        shm.account_log.clock = max_clock_account.maxClock";
+                "select id, account_id, own_amount, max_available_amount, min_available_amount, clock " +
+                        "from shm.account_log " +
+                        "where account_id = :accId and clock <= :clock " +
+                        "order by clock desc " +
+                        "limit 1";
         try {
             List<BalanceModel> query = getNamedParameterJdbcTemplate()
                     .query(sql, params, balanceRowMapper);
@@ -81,5 +126,87 @@ public class AccountLogDaoImpl extends NamedParameterJdbcDaoSupport implements A
         }
     }
 
+    @Override
+    public Map<Long, BalanceModel> getLastBalancesByIds(Collection<Long> ids) {
+        MapSqlParameterSource params = new MapSqlParameterSource("accIds", SqlArrayUtils.bigintArray(ids));
+        final String sql =
+                "select last.* " +
+                        "from unnest(:accIds) as acc(account_id) " +
+                        "cross join lateral (" +
+                        "   select id, account_id, own_amount, max_available_amount, min_available_amount, clock " +
+                        "   from shm.account_log " +
+                        "   where account_id = acc.account_id " +
+                        "   order by clock desc " +
+                        "   limit 1) last";
+        return queryBalances(sql, params);
+    }
+
+    @Override
+    public Map<Long, BalanceModel> getBalancesAtClock(Collection<Long> ids, long clock) {
+        MapSqlParameterSource params = new MapSqlParameterSource("accIds", SqlArrayUtils.bigintArray(ids))
+                .addValue("clock", clock);
+        final String sql =
+                "select last.* " +
+                        "from unnest(:accIds) as acc(account_id) " +
+                        "cross join lateral (" +
+                        "   select id, account_id, own_amount, max_available_amount, min_available_amount, clock " +
+                        "   from shm.account_log " +
+                        "   where account_id = acc.account_id and clock <= :clock " +
+                        "   order by clock desc " +
+                        "   limit 1) last";
+        return queryBalances(sql, params);
+    }
+
+    @Override
+    public LocalDateTime getFirstCreationTime(LocalDateTime from, LocalDateTime to) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", from, Types.OTHER)
+                .addValue("to", to, Types.OTHER);
+        final String sql = "select min(creation_time) from shm.account_log where creation_time >= :from and creation_time < :to";
+        try {
+            return getNamedParameterJdbcTemplate().queryForObject(sql, params, LocalDateTime.class);
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
+    }
+
+    @Override
+    public int deleteSparseCheckpoints(LocalDateTime from, LocalDateTime to, LocalDateTime hourlyFrom) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", from, Types.OTHER)
+                .addValue("to", to, Types.OTHER)
+                .addValue("hourlyFrom", hourlyFrom, Types.OTHER);
+        // keeps the highest clock per account in every hourly (or, past hourlyFrom, daily) bucket
+        // that falls into [from, to), so only the rows of that range are ranked
+        final String sql =
+                "delete from shm.account_log " +
+                        "where id in (" +
+                        "   select id from (" +
+                        "       select id, row_number() over (" +
+                        "           partition by account_id, " +
+                        "               case when creation_time >= :hourlyFrom " +
+                        "                   then date_trunc('hour', creation_time) " +
+                        "                   else date_trunc('day', creation_time) end " +
+                        "           order by clock desc, id desc) as rn " +
+                        "       from shm.account_log " +
+                        "       where creation_time >= :from and creation_time < :to) ranked " +
+                        "   where rn > 1)";
+        try {
+            return getNamedParameterJdbcTemplate().update(sql, params);
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
+    }
+
+    private Map<Long, BalanceModel> queryBalances(String sql, MapSqlParameterSource params) {
+        try {
+            Map<Long, BalanceModel> balances = new LinkedHashMap<>();
+            getNamedParameterJdbcTemplate().query(sql, params, balanceRowMapper)
+                    .forEach(balance -> balances.put(balance.getAccountId(), balance));
+            return balances;
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
+    }
 
 }
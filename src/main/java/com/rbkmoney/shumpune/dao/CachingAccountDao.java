@@ -0,0 +1,121 @@
+package com.rbkmoney.shumpune.dao;
+
+import com.rbkmoney.damsel.shumpune.Account;
+import com.rbkmoney.damsel.shumpune.AccountPrototype;
+import com.rbkmoney.shumpune.cache.AccountCache;
+import com.rbkmoney.shumpune.config.AccountCacheProperties;
+import com.rbkmoney.shumpune.routing.ReplicaRoutingContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Accounts never change after insert, so reads are served from {@link AccountCache} and only misses go to the database.
+ */
+@Slf4j
+@Primary
+@Service
+public class CachingAccountDao implements AccountDao {
+
+    private final AccountDaoImpl accountDao;
+    private final AccountCache accountCache;
+    private final AccountCacheProperties properties;
+    private final Timer loadTimer;
+
+    public CachingAccountDao(AccountDaoImpl accountDao,
+                             AccountCache accountCache,
+                             AccountCacheProperties properties,
+                             MeterRegistry meterRegistry) {
+        this.accountDao = accountDao;
+        this.accountCache = accountCache;
+        this.properties = properties;
+        this.loadTimer = meterRegistry.timer("cache.account.load");
+    }
+
+    @Override
+    public Long insert(AccountPrototype account) {
+        Long id = accountDao.insert(account);
+        if (accountCache.isEnabled()) {
+            accountDao.getAccountById(id).ifPresent(accountCache::put);
+        }
+        return id;
+    }
+
+    @Override
+    public Optional<Account> getAccountById(Long id) {
+        Account cached = accountCache.get(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        if (accountCache.isMissing(id)) {
+            return Optional.empty();
+        }
+        Optional<Account> account = loadTimer.record(() -> accountDao.getAccountById(id));
+        if (account.isPresent()) {
+            accountCache.put(account.get());
+        } else {
+            putMissing(id);
+        }
+        return account;
+    }
+
+    @Override
+    public Map<Long, Account> getAccountsByIds(Collection<Long> ids) {
+        Map<Long, Account> accounts = new LinkedHashMap<>();
+        List<Long> notCached = new ArrayList<>();
+        for (Long id : ids) {
+            Account cached = accountCache.get(id);
+            if (cached != null) {
+                accounts.put(id, cached);
+            } else if (!accountCache.isMissing(id)) {
+                notCached.add(id);
+            }
+        }
+        if (!notCached.isEmpty()) {
+            Map<Long, Account> loaded = loadTimer.record(() -> accountDao.getAccountsByIds(notCached));
+            for (Long id : notCached) {
+                Account account = loaded.get(id);
+                if (account != null) {
+                    accountCache.put(account);
+                    accounts.put(id, account);
+                } else {
+                    putMissing(id);
+                }
+            }
+        }
+        return accounts;
+    }
+
+    @Override
+    public List<Account> getRecentlyActiveAccounts(int limit) {
+        return accountDao.getRecentlyActiveAccounts(limit);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmup() {
+        if (accountCache.isEnabled() && properties.isWarmupEnabled()) {
+            List<Account> accounts = loadTimer.record(() -> accountDao.getRecentlyActiveAccounts(properties.getWarmupSize()));
+            accounts.forEach(accountCache::put);
+            log.info("Account cache warmed up with {} accounts", accounts.size());
+        }
+    }
+
+    private void putMissing(Long id) {
+        // a replica may just lag behind, only a miss on the primary is remembered
+        if (ReplicaRoutingContext.get() == null) {
+            accountCache.putMissing(id);
+        }
+    }
+
+}
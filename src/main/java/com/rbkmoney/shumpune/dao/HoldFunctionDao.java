@@ -0,0 +1,12 @@
+package com.rbkmoney.shumpune.dao;
+
+import com.rbkmoney.shumpune.domain.HoldResult;
+import com.rbkmoney.shumpune.domain.PostingModel;
+
+import java.util.List;
+
+public interface HoldFunctionDao {
+
+    HoldResult hold(String planId, Long batchId, List<PostingModel> postingModels, byte[] fingerprint, boolean runningBalance);
+
+}
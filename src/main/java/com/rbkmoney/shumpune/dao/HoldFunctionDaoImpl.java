@@ -0,0 +1,74 @@
+package com.rbkmoney.shumpune.dao;
+
+import com.rbkmoney.shumpune.dao.mapper.HoldResultMapper;
+import com.rbkmoney.shumpune.domain.HoldResult;
+import com.rbkmoney.shumpune.domain.PostingModel;
+import com.rbkmoney.shumpune.exception.DaoException;
+import org.springframework.core.NestedRuntimeException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcDaoSupport;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+@Service
+public class HoldFunctionDaoImpl extends NamedParameterJdbcDaoSupport implements HoldFunctionDao {
+
+    private static final String SQL_HOLD = "select status, clock, errors " +
+            "from shm.hold_posting_batch(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final HoldResultMapper holdResultMapper;
+
+    public HoldFunctionDaoImpl(DataSource ds, HoldResultMapper holdResultMapper) {
+        setDataSource(ds);
+        this.holdResultMapper = holdResultMapper;
+    }
+
+    @Override
+    public HoldResult hold(String planId, Long batchId, List<PostingModel> postingModels, byte[] fingerprint, boolean runningBalance) {
+        int size = postingModels.size();
+        Long[] fromIds = new Long[size];
+        Long[] toIds = new Long[size];
+        Long[] amounts = new Long[size];
+        String[] currencySymCodes = new String[size];
+        String[] descriptions = new String[size];
+        for (int i = 0; i < size; i++) {
+            PostingModel posting = postingModels.get(i);
+            fromIds[i] = posting.getAccountFromId();
+            toIds[i] = posting.getAccountToId();
+            amounts[i] = posting.getAmount();
+            currencySymCodes[i] = posting.getCurrencySymbCode();
+            descriptions[i] = posting.getDescription();
+        }
+        Instant creationTime = postingModels.isEmpty() ? Instant.now() : postingModels.get(0).getCreationTime();
+        try {
+            List<HoldResult> results = getJdbcTemplate().query(
+                    con -> {
+                        PreparedStatement ps = con.prepareStatement(SQL_HOLD);
+                        int index = 0;
+                        ps.setString(++index, planId);
+                        ps.setLong(++index, batchId);
+                        ps.setArray(++index, con.createArrayOf("bigint", fromIds));
+                        ps.setArray(++index, con.createArrayOf("bigint", toIds));
+                        ps.setArray(++index, con.createArrayOf("bigint", amounts));
+                        ps.setArray(++index, con.createArrayOf("varchar", currencySymCodes));
+                        ps.setArray(++index, con.createArrayOf("varchar", descriptions));
+                        ps.setTimestamp(++index, Timestamp.from(creationTime));
+                        ps.setBytes(++index, fingerprint);
+                        ps.setBoolean(++index, runningBalance);
+                        return ps;
+                    },
+                    holdResultMapper);
+            if (results.size() != 1) {
+                throw new DaoException("Hold function returned unexpected row count: " + results.size());
+            }
+            return results.get(0);
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
+    }
+
+}
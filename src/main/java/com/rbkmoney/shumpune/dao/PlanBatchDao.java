@@ -0,0 +1,16 @@
+package com.rbkmoney.shumpune.dao;
+
+import com.rbkmoney.shumpune.constant.PostingOperation;
+import com.rbkmoney.shumpune.domain.PlanBatchModel;
+
+import java.util.List;
+
+public interface PlanBatchDao {
+
+    void insertBatches(List<PlanBatchModel> batches);
+
+    List<PlanBatchModel> getBatches(String planId);
+
+    PlanBatchModel getBatch(String planId, Long batchId, PostingOperation operation);
+
+}
@@ -0,0 +1,75 @@
+package com.rbkmoney.shumpune.dao;
+
+import com.rbkmoney.shumpune.constant.PostingOperation;
+import com.rbkmoney.shumpune.dao.mapper.PlanBatchModelMapper;
+import com.rbkmoney.shumpune.domain.PlanBatchModel;
+import com.rbkmoney.shumpune.exception.DaoException;
+import org.springframework.core.NestedRuntimeException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcDaoSupport;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+@Service
+public class PlanBatchDaoImpl extends NamedParameterJdbcDaoSupport implements PlanBatchDao {
+
+    private final PlanBatchModelMapper planBatchModelMapper;
+
+    public PlanBatchDaoImpl(DataSource ds, PlanBatchModelMapper planBatchModelMapper) {
+        setDataSource(ds);
+        this.planBatchModelMapper = planBatchModelMapper;
+    }
+
+    @Override
+    public void insertBatches(List<PlanBatchModel> batches) {
+        final String sql =
+                "INSERT INTO shm.plan_batch(plan_id, batch_id, operation, size, fingerprint, clock) " +
+                        "VALUES (:planId, :batchId, :operation::shm.posting_operation_type, :size, :fingerprint, :clock)";
+        SqlParameterSource[] params = batches.stream()
+                .map(batch -> new MapSqlParameterSource()
+                        .addValue("planId", batch.getPlanId())
+                        .addValue("batchId", batch.getBatchId())
+                        .addValue("operation", batch.getOperation().name())
+                        .addValue("size", batch.getSize())
+                        .addValue("fingerprint", batch.getFingerprint())
+                        .addValue("clock", batch.getClock()))
+                .toArray(SqlParameterSource[]::new);
+        try {
+            getNamedParameterJdbcTemplate().batchUpdate(sql, params);
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
+    }
+
+    @Override
+    public List<PlanBatchModel> getBatches(String planId) {
+        final String sql = "select plan_id, batch_id, operation, size, fingerprint, clock " +
+                "from shm.plan_batch " +
+                "where plan_id = :planId";
+        try {
+            return getNamedParameterJdbcTemplate().query(sql, new MapSqlParameterSource("planId", planId), planBatchModelMapper);
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
+    }
+
+    @Override
+    public PlanBatchModel getBatch(String planId, Long batchId, PostingOperation operation) {
+        final String sql = "select plan_id, batch_id, operation, size, fingerprint, clock " +
+                "from shm.plan_batch " +
+                "where plan_id = :planId and batch_id = :batchId and operation = :operation::shm.posting_operation_type";
+        MapSqlParameterSource params = new MapSqlParameterSource("planId", planId)
+                .addValue("batchId", batchId)
+                .addValue("operation", operation.name());
+        try {
+            List<PlanBatchModel> batches = getNamedParameterJdbcTemplate().query(sql, params, planBatchModelMapper);
+            return batches.isEmpty() ? null : batches.get(0);
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
+    }
+
+}
@@ -2,22 +2,45 @@ package com.rbkmoney.shumpune.dao;
 
 import com.rbkmoney.shumpune.constant.PostingOperation;
 import com.rbkmoney.shumpune.domain.BalanceModel;
+import com.rbkmoney.shumpune.domain.PostingColumns;
 import com.rbkmoney.shumpune.domain.PostingModel;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
 public interface PlanDao {
 
-    long insertPostings(List<PostingModel> postingModels);
+    /**
+     * @return the highest posting id of every batch, by batch id
+     */
+    Map<Long, Long> insertPostings(List<PostingModel> postingModels);
 
     BalanceModel getBalance(Long accountId, Long fromClock, Long toClock);
 
+    Map<Long, BalanceModel> getBalances(Map<Long, Long> fromClocks, Map<Long, Long> toClocks);
+
+    BalanceModel getHistoricalBalance(Long accountId, Long fromClock, Long toClock);
+
+    Map<Long, BalanceModel> getHistoricalBalances(Map<Long, Long> fromClocks, Map<Long, Long> toClocks);
+
     List<PostingModel> getPostingModelsPlanById(String planId);
 
-    Map<Long, List<PostingModel>> getPostingLogs(String planId, PostingOperation operation);
+    PostingColumns getPostingColumnsByPlanId(String planId);
 
-    long selectMaxClock(String planId, Long batchId);
+    Map<Long, List<PostingModel>> getPostingLogs(String planId, PostingOperation operation);
 
     long getMaxClockByAccountId(Long id);
+
+    Map<Long, Long> getMaxClocksByAccountIds(Collection<Long> ids);
+
+    long getMaxClock();
+
+    Map<Long, Long> getAccountsBehindCheckpoint(long sinceClock, long lagThreshold, int limit);
+
+    int createPartitions(long size, int ahead);
+
+    List<String> getArchivablePartitions(int keep);
+
+    boolean archivePartition(String name);
 }
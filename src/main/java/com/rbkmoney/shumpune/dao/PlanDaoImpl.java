@@ -1,22 +1,40 @@
 package com.rbkmoney.shumpune.dao;
 
+import com.rbkmoney.shumpune.config.PostingLogCopyProperties;
+import com.rbkmoney.shumpune.constant.AccountLogFields;
 import com.rbkmoney.shumpune.constant.PostingLogFields;
 import com.rbkmoney.shumpune.constant.PostingOperation;
+import com.rbkmoney.shumpune.dao.mapper.PostingColumnsExtractor;
 import com.rbkmoney.shumpune.dao.mapper.PostingModelMapper;
 import com.rbkmoney.shumpune.domain.BalanceModel;
+import com.rbkmoney.shumpune.domain.PostingColumns;
 import com.rbkmoney.shumpune.domain.PostingModel;
 import com.rbkmoney.shumpune.exception.DaoException;
+import com.rbkmoney.shumpune.utils.SqlArrayUtils;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
 import org.springframework.core.NestedRuntimeException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcDaoSupport;
+import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.stereotype.Component;
 
 import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -25,53 +43,173 @@ import java.util.stream.Collectors;
 public class PlanDaoImpl extends NamedParameterJdbcDaoSupport implements PlanDao {
 
     private static final int BATCH_SIZE = 1000;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final DateTimeFormatter COPY_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+
+    private static final String SQL_INSERT_POSTINGS = "INSERT INTO shm.posting_log(plan_id, batch_id, from_account_id, to_account_id, " +
+            "creation_time, amount, curr_sym_code, operation, description) VALUES ";
+    private static final String SQL_INSERT_POSTINGS_ROW = "(?, ?, ?, ?, ?, ?, ?, ?::shm.posting_operation_type, ?)";
+    private static final String SQL_RESERVE_POSTING_IDS = "select nextval('shm.posting_log_id_seq') from generate_series(1, ?)";
+
+    private static final String SQL_COPY_POSTINGS = "COPY shm.posting_log(id, plan_id, batch_id, from_account_id, to_account_id, " +
+            "creation_time, amount, curr_sym_code, operation, description) FROM STDIN WITH (FORMAT csv)";
 
     public static final String OPERATION = "operation";
 
-    public static final String SQL_GET_SUM_BY_ACC = "select sum(AMOUNT) as own_amount, operation " +
-            "from shm.posting_log " +
-            "where id > :fromClock and id <= :toClock " +
-            "and %s = :acc_id " +
-            "GROUP BY operation";
+    private static final String FROM_HOLD = "from_hold";
+    private static final String FROM_COMMIT = "from_commit";
+    private static final String FROM_ROLLBACK = "from_rollback";
+    private static final String TO_HOLD = "to_hold";
+    private static final String TO_COMMIT = "to_commit";
+    private static final String TO_ROLLBACK = "to_rollback";
+
+    private static final String POSTING_LOG = "shm.posting_log";
+    private static final String POSTING_LOG_WITH_ARCHIVE = "shm.posting_log_with_archive";
+
+    private static final String SQL_SELECT_SUMS = "select " +
+            "f.hold as " + FROM_HOLD + ", f.commit as " + FROM_COMMIT + ", f.rollback as " + FROM_ROLLBACK + ", " +
+            "t.hold as " + TO_HOLD + ", t.commit as " + TO_COMMIT + ", t.rollback as " + TO_ROLLBACK + " ";
+
+    public static final String SQL_GET_SUMS_BY_ACC = sumsByAccount(POSTING_LOG);
+    private static final String SQL_GET_HISTORICAL_SUMS_BY_ACC = sumsByAccount(POSTING_LOG_WITH_ARCHIVE);
+    private static final String SQL_GET_SUMS_BY_ACCOUNTS = sumsByAccounts(POSTING_LOG);
+    private static final String SQL_GET_HISTORICAL_SUMS_BY_ACCOUNTS = sumsByAccounts(POSTING_LOG_WITH_ARCHIVE);
+
+    // a plan can have rows on both sides, e.g. across a partition bound, so hot and archived rows are read together
+    private static final String SQL_GET_POSTINGS_BY_PLAN = "select id, plan_id, batch_id, from_account_id, to_account_id, operation, " +
+            "amount, creation_time, curr_sym_code, description " +
+            "from " + POSTING_LOG_WITH_ARCHIVE + " " +
+            "where plan_id=:plan_id";
+    private static final String SQL_GET_POSTING_COLUMNS_BY_PLAN = "select batch_id, from_account_id, to_account_id, operation, " +
+            "amount, curr_sym_code, description " +
+            "from " + POSTING_LOG_WITH_ARCHIVE + " " +
+            "where plan_id=:plan_id";
+    private static final String SQL_GET_POSTINGS_BY_PLAN_AND_OPERATION = "select * from " + POSTING_LOG_WITH_ARCHIVE + " " +
+            "where plan_id = :plan_id and operation = :operation::shm.posting_operation_type";
+
+    public static final String SQL_GET_MAX_CLOCK_BY_ACC = "select max(clock) as clock from (" +
+            "select max(id) as clock from shm.posting_log where from_account_id = :accId " +
+            "union all " +
+            "select max(id) as clock from shm.posting_log where to_account_id = :accId) c";
 
     private final PostingModelMapper postingModelMapper;
+    private final PostingColumnsExtractor postingColumnsExtractor;
+    private final PostingLogCopyProperties postingLogCopyProperties;
 
-    public PlanDaoImpl(DataSource ds, PostingModelMapper postingModelMapper) {
+    public PlanDaoImpl(DataSource ds, PostingModelMapper postingModelMapper, PostingColumnsExtractor postingColumnsExtractor,
+                       PostingLogCopyProperties postingLogCopyProperties) {
         setDataSource(ds);
         this.postingModelMapper = postingModelMapper;
+        this.postingColumnsExtractor = postingColumnsExtractor;
+        this.postingLogCopyProperties = postingLogCopyProperties;
     }
 
 
     @Override
-    public long insertPostings(List<PostingModel> postings) {
-        final String sql = "INSERT INTO shm.posting_log(plan_id, batch_id, from_account_id, to_account_id, creation_time, amount, curr_sym_code, operation, description) VALUES (?, ?, ?, ?, ?, ?, ?, ?::shm.posting_operation_type, ?)";
-
-        int[][] updateCounts = getJdbcTemplate().batchUpdate(sql, postings, BATCH_SIZE,
-                (ps, argument) -> {
-                    ps.setString(1, argument.getPlanId());
-                    ps.setLong(2, argument.getBatchId());
-                    ps.setLong(3, argument.getAccountFromId());
-                    ps.setLong(4, argument.getAccountToId());
-                    ps.setTimestamp(5, Timestamp.from(argument.getCreationTime()));
-                    ps.setLong(6, argument.getAmount());
-                    ps.setString(7, argument.getCurrencySymbCode());
-                    ps.setString(8, argument.getOperation().name());
-                    ps.setString(9, argument.getDescription());
-                });
-        checkBatchUpdate(updateCounts);
-        PostingModel postingModel = postings.get(0);
-        return selectMaxClock(postingModel.getPlanId(), postingModel.getBatchId());
+    public Map<Long, Long> insertPostings(List<PostingModel> postings) {
+        if (postings.isEmpty()) {
+            throw new DaoException("Posting log creation returned unexpected update count [0]");
+        }
+        if (postingLogCopyProperties.isEnabled() && postings.size() > postingLogCopyProperties.getThreshold()) {
+            return insertPostingsWithCopy(postings);
+        }
+        return insertPostingsWithBatch(postings);
+    }
+
+    public Map<Long, Long> insertPostingsWithBatch(List<PostingModel> postings) {
+        // RETURNING rows come in no guaranteed order, which does not matter for a max per batch
+        Map<Long, Long> batchClocks = new HashMap<>();
+        for (int from = 0; from < postings.size(); from += BATCH_SIZE) {
+            List<PostingModel> chunk = postings.subList(from, Math.min(from + BATCH_SIZE, postings.size()));
+            String sql = SQL_INSERT_POSTINGS + String.join(", ", Collections.nCopies(chunk.size(), SQL_INSERT_POSTINGS_ROW)) +
+                    " RETURNING id, batch_id";
+            try {
+                int[] rows = new int[1];
+                getJdbcTemplate().query(
+                        con -> {
+                            PreparedStatement ps = con.prepareStatement(sql);
+                            int index = 0;
+                            for (PostingModel posting : chunk) {
+                                ps.setString(++index, posting.getPlanId());
+                                ps.setLong(++index, posting.getBatchId());
+                                ps.setLong(++index, posting.getAccountFromId());
+                                ps.setLong(++index, posting.getAccountToId());
+                                ps.setTimestamp(++index, Timestamp.from(posting.getCreationTime()));
+                                ps.setLong(++index, posting.getAmount());
+                                ps.setString(++index, posting.getCurrencySymbCode());
+                                ps.setString(++index, posting.getOperation().name());
+                                ps.setString(++index, posting.getDescription());
+                            }
+                            return ps;
+                        },
+                        rs -> {
+                            rows[0]++;
+                            batchClocks.merge(rs.getLong(PostingLogFields.BATCH_ID), rs.getLong(PostingLogFields.ID), Math::max);
+                        });
+                if (rows[0] != chunk.size()) {
+                    throw new DaoException("Posting log creation returned unexpected row count: " + rows[0]);
+                }
+            } catch (NestedRuntimeException e) {
+                throw new DaoException(e);
+            }
+        }
+        return batchClocks;
+    }
+
+    public Map<Long, Long> insertPostingsWithCopy(List<PostingModel> postings) {
+        // COPY cannot return ids, so they are taken from the sequence up front
+        Map<Long, Long> batchClocks = reserveIds(postings);
+        Connection connection = DataSourceUtils.getConnection(getDataSource());
+        try {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(SQL_COPY_POSTINGS);
+            try {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream(COPY_BUFFER_SIZE);
+                for (PostingModel posting : postings) {
+                    buffer.writeBytes(toCsvRow(posting).getBytes(StandardCharsets.UTF_8));
+                    if (buffer.size() >= COPY_BUFFER_SIZE) {
+                        copyIn.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+                        buffer.reset();
+                    }
+                }
+                copyIn.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+                long rows = copyIn.endCopy();
+                if (rows != postings.size()) {
+                    throw new DaoException("Posting log copy returned unexpected row count: " + rows);
+                }
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        } catch (SQLException e) {
+            throw new DaoException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, getDataSource());
+        }
+        return batchClocks;
+    }
+
+    private Map<Long, Long> reserveIds(List<PostingModel> postings) {
+        try {
+            List<Long> ids = getJdbcTemplate().queryForList(SQL_RESERVE_POSTING_IDS, Long.class, postings.size());
+            Map<Long, Long> batchClocks = new HashMap<>();
+            for (int i = 0; i < postings.size(); i++) {
+                postings.get(i).setId(ids.get(i));
+                batchClocks.merge(postings.get(i).getBatchId(), ids.get(i), Math::max);
+            }
+            return batchClocks;
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
     }
 
     @Override
     public Map<Long, List<PostingModel>> getPostingLogs(String planId, PostingOperation operation) {
-        final String sql = "select * from shm.posting_log where plan_id = :plan_id and operation = :operation::shm.posting_operation_type";
         MapSqlParameterSource params = new MapSqlParameterSource();
         params.addValue("plan_id", planId);
         params.addValue(OPERATION, operation.name());
         try {
-            return getNamedParameterJdbcTemplate()
-                    .query(sql, params, postingModelMapper).stream()
+            return getNamedParameterJdbcTemplate().query(SQL_GET_POSTINGS_BY_PLAN_AND_OPERATION, params, postingModelMapper).stream()
                     .collect(Collectors.groupingBy(PostingModel::getBatchId));
         } catch (NestedRuntimeException e) {
             throw new DaoException(e);
@@ -80,47 +218,61 @@ public class PlanDaoImpl extends NamedParameterJdbcDaoSupport implements PlanDao
 
     @Override
     public BalanceModel getBalance(Long accountId, Long fromClock, Long toClock) {
+        return getBalance(SQL_GET_SUMS_BY_ACC, accountId, fromClock, toClock);
+    }
+
+    @Override
+    public BalanceModel getHistoricalBalance(Long accountId, Long fromClock, Long toClock) {
+        return getBalance(SQL_GET_HISTORICAL_SUMS_BY_ACC, accountId, fromClock, toClock);
+    }
+
+    private BalanceModel getBalance(String sql, Long accountId, Long fromClock, Long toClock) {
         MapSqlParameterSource params = new MapSqlParameterSource("fromClock", fromClock)
                 .addValue("toClock", toClock)
                 .addValue("acc_id", accountId);
+        try {
+            return getNamedParameterJdbcTemplate()
+                    .queryForObject(sql, params, (rs, rowNum) -> mapSums(rs, accountId, toClock));
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
+    }
 
-        Map<String, Long> sumMapFrom = new HashMap<>();
-        getNamedParameterJdbcTemplate()
-                .query(String.format(SQL_GET_SUM_BY_ACC, PostingLogFields.FROM_ACCOUNT_ID), params, rs -> {
-                    putSumToByOperation(sumMapFrom, rs);
-                });
-
-        Map<String, Long> sumMapTo = new HashMap<>();
-        getNamedParameterJdbcTemplate()
-                .query(String.format(SQL_GET_SUM_BY_ACC, PostingLogFields.TO_ACCOUNT_ID), params, rs -> {
-                    putSumToByOperation(sumMapTo, rs);
-        });
+    @Override
+    public Map<Long, BalanceModel> getBalances(Map<Long, Long> fromClocks, Map<Long, Long> toClocks) {
+        return getBalances(SQL_GET_SUMS_BY_ACCOUNTS, fromClocks, toClocks);
+    }
 
-        return BalanceModel.builder()
-                .accountId(accountId)
-                .clock(toClock)
-                .ownAmount(safeGetSum(sumMapTo, PostingOperation.COMMIT) - safeGetSum(sumMapFrom, PostingOperation.COMMIT))
-                .minAvailableAmount(safeGetSum(sumMapTo, PostingOperation.COMMIT) -
-                        (safeGetSum(sumMapFrom, PostingOperation.HOLD) - safeGetSum(sumMapFrom, PostingOperation.ROLLBACK)))
-                .maxAvailableAmount((safeGetSum(sumMapTo, PostingOperation.HOLD) - safeGetSum(sumMapTo, PostingOperation.ROLLBACK))
-                        - safeGetSum(sumMapFrom, PostingOperation.COMMIT))
-                .build();
+    @Override
+    public Map<Long, BalanceModel> getHistoricalBalances(Map<Long, Long> fromClocks, Map<Long, Long> toClocks) {
+        return getBalances(SQL_GET_HISTORICAL_SUMS_BY_ACCOUNTS, fromClocks, toClocks);
     }
 
-    private void putSumToByOperation(Map<String, Long> sumMapFrom, ResultSet rs) throws SQLException {
-        sumMapFrom.put(rs.getString(OPERATION), rs.getLong("own_amount"));
+    private Map<Long, BalanceModel> getBalances(String sql, Map<Long, Long> fromClocks, Map<Long, Long> toClocks) {
+        List<Long> accountIds = new ArrayList<>(toClocks.keySet());
+        List<Long> from = accountIds.stream().map(id -> fromClocks.getOrDefault(id, 0L)).collect(Collectors.toList());
+        List<Long> to = accountIds.stream().map(toClocks::get).collect(Collectors.toList());
+        MapSqlParameterSource params = new MapSqlParameterSource("accIds", SqlArrayUtils.bigintArray(accountIds))
+                .addValue("fromClocks", SqlArrayUtils.bigintArray(from))
+                .addValue("toClocks", SqlArrayUtils.bigintArray(to));
+        try {
+            Map<Long, BalanceModel> balances = new LinkedHashMap<>();
+            getNamedParameterJdbcTemplate().query(sql, params,
+                    rs -> {
+                        long accountId = rs.getLong(AccountLogFields.ACCOUNT_ID);
+                        balances.put(accountId, mapSums(rs, accountId, rs.getLong("to_clock")));
+                    });
+            return balances;
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
     }
 
     @Override
     public List<PostingModel> getPostingModelsPlanById(String planId) {
-        final String sql = "select plan_id, batch_id, from_account_id, to_account_id, operation, " +
-                "amount, creation_time, curr_sym_code, description " +
-                "from shm.posting_log " +
-                "where plan_id=:plan_id";
         MapSqlParameterSource params = new MapSqlParameterSource("plan_id", planId);
         try {
-            return getNamedParameterJdbcTemplate()
-                    .query(sql, params, postingModelMapper);
+            return getNamedParameterJdbcTemplate().query(SQL_GET_POSTINGS_BY_PLAN, params, postingModelMapper);
         } catch (EmptyResultDataAccessException e) {
             return null;
         } catch (NestedRuntimeException e) {
@@ -128,31 +280,200 @@ public class PlanDaoImpl extends NamedParameterJdbcDaoSupport implements PlanDao
         }
     }
 
-    private long safeGetSum(Map<String, Long> sumMapFrom, PostingOperation postingOperation) {
-        return sumMapFrom.getOrDefault(postingOperation.name(), 0L);
+    @Override
+    public PostingColumns getPostingColumnsByPlanId(String planId) {
+        MapSqlParameterSource params = new MapSqlParameterSource("plan_id", planId);
+        try {
+            return getNamedParameterJdbcTemplate().query(SQL_GET_POSTING_COLUMNS_BY_PLAN, params, postingColumnsExtractor);
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
+    }
+
+    @Override
+    public long getMaxClockByAccountId(Long id) {
+        MapSqlParameterSource params = new MapSqlParameterSource("accId", id);
+        return queryForLong(params, SQL_GET_MAX_CLOCK_BY_ACC);
     }
 
     @Override
-    public long selectMaxClock(String planId, Long batchId) {
-        MapSqlParameterSource params = new MapSqlParameterSource("planId", planId)
-                .addValue("batchId", batchId);
+    public Map<Long, Long> getMaxClocksByAccountIds(Collection<Long> ids) {
+        final String sql = "select acc.account_id, coalesce(greatest(" +
+                "    (select max(id) from shm.posting_log where from_account_id = acc.account_id), " +
+                "    (select max(id) from shm.posting_log where to_account_id = acc.account_id)), 0) as clock " +
+                "from unnest(:accIds) as acc(account_id)";
+        MapSqlParameterSource params = new MapSqlParameterSource("accIds", SqlArrayUtils.bigintArray(ids));
+        try {
+            Map<Long, Long> clocks = new LinkedHashMap<>();
+            getNamedParameterJdbcTemplate().query(sql, params,
+                    rs -> {
+                        clocks.put(rs.getLong(AccountLogFields.ACCOUNT_ID), rs.getLong(AccountLogFields.CLOCK));
+                    });
+            return clocks;
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
+    }
 
-        String sqlGetClock = "select max(id) as clock " +
-                "from shm.posting_log " +
-                "where plan_id = :planId and batch_id= :batchId";
+    @Override
+    public long getMaxClock() {
+        String sqlGetClock = "select max(id) as clock from shm.posting_log";
+        return queryForLong(new MapSqlParameterSource(), sqlGetClock);
+    }
 
-        return queryForLong(params, sqlGetClock);
+    @Override
+    public Map<Long, Long> getAccountsBehindCheckpoint(long sinceClock, long lagThreshold, int limit) {
+        // one grouped count per side instead of an OR, so each side is served by its own (account_id, id) index
+        final String sql = "with active_account as (" +
+                "    select from_account_id as account_id from shm.posting_log where id > :sinceClock" +
+                "    union" +
+                "    select to_account_id as account_id from shm.posting_log where id > :sinceClock), " +
+                "checkpoint as (" +
+                "    select active_account.account_id, last.clock " +
+                "    from active_account " +
+                "    cross join lateral (select coalesce(max(clock), 0) as clock " +
+                "        from shm.account_log where account_id = active_account.account_id) last), " +
+                "side_lag as (" +
+                "    select posting.from_account_id as account_id, count(*) as lag " +
+                "    from checkpoint join shm.posting_log posting " +
+                "        on posting.from_account_id = checkpoint.account_id and posting.id > checkpoint.clock " +
+                "    group by posting.from_account_id" +
+                "    union all" +
+                "    select posting.to_account_id as account_id, count(*) as lag " +
+                "    from checkpoint join shm.posting_log posting " +
+                "        on posting.to_account_id = checkpoint.account_id and posting.id > checkpoint.clock " +
+                "    group by posting.to_account_id) " +
+                "select account_id, sum(lag) as lag " +
+                "from side_lag " +
+                "group by account_id " +
+                "having sum(lag) > :lagThreshold " +
+                "order by lag desc " +
+                "limit :limit";
+        MapSqlParameterSource params = new MapSqlParameterSource("sinceClock", sinceClock)
+                .addValue("lagThreshold", lagThreshold)
+                .addValue("limit", limit);
+        try {
+            Map<Long, Long> lags = new LinkedHashMap<>();
+            getNamedParameterJdbcTemplate().query(sql, params,
+                    rs -> {
+                        lags.put(rs.getLong(AccountLogFields.ACCOUNT_ID), rs.getLong("lag"));
+                    });
+            return lags;
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
     }
 
     @Override
-    public long getMaxClockByAccountId(Long id) {
-        MapSqlParameterSource params = new MapSqlParameterSource("accId", id);
+    public int createPartitions(long size, int ahead) {
+        MapSqlParameterSource params = new MapSqlParameterSource("size", size)
+                .addValue("ahead", ahead);
+        try {
+            Integer created = getNamedParameterJdbcTemplate()
+                    .queryForObject("select shm.create_posting_log_partitions(:size, :ahead)", params, Integer.class);
+            return created != null ? created : 0;
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
+    }
 
-        String sqlGetClock = "select max(id) as clock " +
-                "from shm.posting_log " +
-                "where from_account_id = :accId or to_account_id= :accId";
+    @Override
+    public List<String> getArchivablePartitions(int keep) {
+        final String sql = "select name from (" +
+                "    select name, from_id, row_number() over (order by from_id desc) as rn " +
+                "    from shm.posting_log_partition " +
+                "    where not archived and to_id <= (select last_value from shm.posting_log_id_seq)) p " +
+                "where rn > :keep " +
+                "order by from_id";
+        try {
+            return getNamedParameterJdbcTemplate().queryForList(sql, new MapSqlParameterSource("keep", keep), String.class);
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
+    }
 
-        return queryForLong(params, sqlGetClock);
+    @Override
+    public boolean archivePartition(String name) {
+        MapSqlParameterSource params = new MapSqlParameterSource("name", name);
+        try {
+            Boolean prepared = getNamedParameterJdbcTemplate()
+                    .queryForObject("select shm.prepare_posting_log_archive(:name)", params, Boolean.class);
+            if (!Boolean.TRUE.equals(prepared)) {
+                return false;
+            }
+            // every step commits on its own, validation must not hold the lock taken by adding the constraint
+            getNamedParameterJdbcTemplate().queryForObject("select shm.validate_posting_log_archive(:name)::text", params, String.class);
+            getNamedParameterJdbcTemplate().queryForObject("select shm.archive_posting_log_partition(:name)::text", params, String.class);
+            return true;
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
+    }
+
+    private static String sumsByOperation(String table) {
+        return "select " +
+                "coalesce(sum(amount) filter (where operation = 'HOLD'), 0) as hold, " +
+                "coalesce(sum(amount) filter (where operation = 'COMMIT'), 0) as commit, " +
+                "coalesce(sum(amount) filter (where operation = 'ROLLBACK'), 0) as rollback " +
+                "from " + table + " ";
+    }
+
+    // one probe per account column, so that each side is an index only scan on its covering index
+    private static String sumsByAccount(String table) {
+        return SQL_SELECT_SUMS +
+                "from (" + sumsByOperation(table) +
+                "    where from_account_id = :acc_id and id > :fromClock and id <= :toClock) f " +
+                "cross join (" + sumsByOperation(table) +
+                "    where to_account_id = :acc_id and id > :fromClock and id <= :toClock) t";
+    }
+
+    private static String sumsByAccounts(String table) {
+        return SQL_SELECT_SUMS + ", range.account_id, range.to_clock " +
+                "from unnest(:accIds, :fromClocks, :toClocks) as range(account_id, from_clock, to_clock) " +
+                "cross join lateral (" + sumsByOperation(table) +
+                "    where from_account_id = range.account_id and id > range.from_clock and id <= range.to_clock) f " +
+                "cross join lateral (" + sumsByOperation(table) +
+                "    where to_account_id = range.account_id and id > range.from_clock and id <= range.to_clock) t";
+    }
+
+    private BalanceModel mapSums(ResultSet rs, Long accountId, Long toClock) throws SQLException {
+        long fromHold = rs.getLong(FROM_HOLD);
+        long fromCommit = rs.getLong(FROM_COMMIT);
+        long fromRollback = rs.getLong(FROM_ROLLBACK);
+        long toHold = rs.getLong(TO_HOLD);
+        long toCommit = rs.getLong(TO_COMMIT);
+        long toRollback = rs.getLong(TO_ROLLBACK);
+        return BalanceModel.builder()
+                .accountId(accountId)
+                .clock(toClock)
+                .ownAmount(toCommit - fromCommit)
+                .minAvailableAmount(toCommit - (fromHold - fromRollback))
+                .maxAvailableAmount((toHold - toRollback) - fromCommit)
+                .build();
+    }
+
+    private String toCsvRow(PostingModel posting) {
+        // same local time as PreparedStatement.setTimestamp, rounded to microseconds like the driver does
+        Timestamp timestamp = Timestamp.from(posting.getCreationTime());
+        LocalDateTime creationTime = timestamp.toLocalDateTime().withNano(0)
+                .plusNanos((timestamp.getNanos() + 500) / 1000 * 1000L);
+        return posting.getId() + "," +
+                csv(posting.getPlanId()) + ',' +
+                posting.getBatchId() + ',' +
+                posting.getAccountFromId() + ',' +
+                posting.getAccountToId() + ',' +
+                creationTime.format(COPY_TIME_FORMATTER) + ',' +
+                posting.getAmount() + ',' +
+                csv(posting.getCurrencySymbCode()) + ',' +
+                posting.getOperation().name() + ',' +
+                csv(posting.getDescription()) + '\n';
+    }
+
+    private String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
     }
 
     private long queryForLong(MapSqlParameterSource params, String sqlGetClock) {
@@ -160,19 +481,4 @@ public class PlanDaoImpl extends NamedParameterJdbcDaoSupport implements PlanDao
                 .queryForObject(sqlGetClock, params, Long.class);
         return clock != null ? clock : 0L;
     }
-
-    private void checkBatchUpdate(int[][] updateCounts) {
-        boolean checked = false;
-        for (int[] updateCount : updateCounts) {
-            for (int i : updateCount) {
-                checked = true;
-                if (i != 1) {
-                    throw new DaoException("Posting log creation returned unexpected update count: " + i);
-                }
-            }
-        }
-        if (!checked) {
-            throw new DaoException("Posting log creation returned unexpected update count [0]");
-        }
-    }
 }
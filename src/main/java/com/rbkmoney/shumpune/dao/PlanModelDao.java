@@ -0,0 +1,20 @@
+package com.rbkmoney.shumpune.dao;
+
+import com.rbkmoney.shumpune.constant.PostingOperation;
+import com.rbkmoney.shumpune.domain.PlanModel;
+
+import java.util.Collection;
+
+public interface PlanModelDao {
+
+    PlanModel get(String planId);
+
+    PlanModel getForUpdate(String planId);
+
+    PlanModel createOrGetForUpdate(String planId);
+
+    void lockForUpdate(Collection<String> planIds);
+
+    void addPostings(String planId, PostingOperation operation, long maxBatchId, long clock, long postingCount);
+
+}
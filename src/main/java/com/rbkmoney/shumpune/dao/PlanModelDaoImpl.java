@@ -0,0 +1,103 @@
+package com.rbkmoney.shumpune.dao;
+
+import com.rbkmoney.shumpune.constant.PostingOperation;
+import com.rbkmoney.shumpune.dao.mapper.PlanModelMapper;
+import com.rbkmoney.shumpune.domain.PlanModel;
+import com.rbkmoney.shumpune.exception.DaoException;
+import org.springframework.core.NestedRuntimeException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcDaoSupport;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.List;
+
+@Service
+public class PlanModelDaoImpl extends NamedParameterJdbcDaoSupport implements PlanModelDao {
+
+    private final PlanModelMapper planModelMapper;
+
+    public PlanModelDaoImpl(DataSource ds, PlanModelMapper planModelMapper) {
+        setDataSource(ds);
+        this.planModelMapper = planModelMapper;
+    }
+
+    @Override
+    public PlanModel get(String planId) {
+        final String sql = "select id, status, max_batch_id, clock, posting_count " +
+                "from shm.plan " +
+                "where id = :id";
+        return queryOne(sql, planId);
+    }
+
+    @Override
+    public PlanModel getForUpdate(String planId) {
+        final String sql = "select id, status, max_batch_id, clock, posting_count " +
+                "from shm.plan " +
+                "where id = :id " +
+                "for update";
+        return queryOne(sql, planId);
+    }
+
+    private PlanModel queryOne(String sql, String planId) {
+        try {
+            List<PlanModel> plans = getNamedParameterJdbcTemplate().query(sql, new MapSqlParameterSource("id", planId), planModelMapper);
+            return plans.isEmpty() ? null : plans.get(0);
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
+    }
+
+    @Override
+    public PlanModel createOrGetForUpdate(String planId) {
+        final String sql = "INSERT INTO shm.plan(id, status, posting_count) " +
+                "VALUES (:id, 'HOLD', 0) " +
+                "ON CONFLICT (id) DO NOTHING";
+        try {
+            getNamedParameterJdbcTemplate().update(sql, new MapSqlParameterSource("id", planId));
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
+        return getForUpdate(planId);
+    }
+
+    @Override
+    public void lockForUpdate(Collection<String> planIds) {
+        // rows are locked in the order they are returned
+        final String sql = "select id " +
+                "from shm.plan " +
+                "where id in (:ids) " +
+                "order by id " +
+                "for update";
+        try {
+            getNamedParameterJdbcTemplate().queryForList(sql, new MapSqlParameterSource("ids", planIds), String.class);
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
+    }
+
+    @Override
+    public void addPostings(String planId, PostingOperation operation, long maxBatchId, long clock, long postingCount) {
+        final String sql = "UPDATE shm.plan SET " +
+                "status = case when :operation = 'HOLD' then status else :operation::shm.posting_operation_type end, " +
+                "max_batch_id = greatest(max_batch_id, :maxBatchId), " +
+                "clock = greatest(clock, :clock), " +
+                "posting_count = posting_count + :postingCount " +
+                "WHERE id = :id";
+        MapSqlParameterSource params = new MapSqlParameterSource("id", planId)
+                .addValue("operation", operation.name())
+                .addValue("maxBatchId", maxBatchId)
+                .addValue("clock", clock)
+                .addValue("postingCount", postingCount);
+        try {
+            int updateCount = getNamedParameterJdbcTemplate().update(sql, params);
+            if (updateCount != 1) {
+                throw new DaoException("Plan update returned unexpected update count: " + updateCount);
+            }
+        } catch (NestedRuntimeException e) {
+            throw new DaoException(e);
+        }
+    }
+
+}
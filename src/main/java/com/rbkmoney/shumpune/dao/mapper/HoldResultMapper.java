@@ -0,0 +1,26 @@
+package com.rbkmoney.shumpune.dao.mapper;
+
+import com.rbkmoney.shumpune.constant.HoldResultFields;
+import com.rbkmoney.shumpune.constant.HoldStatus;
+import com.rbkmoney.shumpune.domain.HoldResult;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+@Component
+public class HoldResultMapper implements RowMapper<HoldResult> {
+
+    @Override
+    public HoldResult mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Array errors = rs.getArray(HoldResultFields.ERRORS);
+        return HoldResult.builder()
+                .status(HoldStatus.valueOf(rs.getString(HoldResultFields.STATUS)))
+                .clock(rs.getObject(HoldResultFields.CLOCK, Long.class))
+                .errors(errors != null ? Arrays.asList((String[]) errors.getArray()) : null)
+                .build();
+    }
+}
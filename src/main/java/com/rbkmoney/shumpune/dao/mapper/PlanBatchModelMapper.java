@@ -0,0 +1,26 @@
+package com.rbkmoney.shumpune.dao.mapper;
+
+import com.rbkmoney.shumpune.constant.PlanBatchFields;
+import com.rbkmoney.shumpune.constant.PostingOperation;
+import com.rbkmoney.shumpune.domain.PlanBatchModel;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+@Component
+public class PlanBatchModelMapper implements RowMapper<PlanBatchModel> {
+
+    @Override
+    public PlanBatchModel mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return PlanBatchModel.builder()
+                .planId(rs.getString(PlanBatchFields.PLAN_ID))
+                .batchId(rs.getLong(PlanBatchFields.BATCH_ID))
+                .operation(PostingOperation.valueOf(rs.getString(PlanBatchFields.OPERATION)))
+                .size(rs.getInt(PlanBatchFields.SIZE))
+                .fingerprint(rs.getBytes(PlanBatchFields.FINGERPRINT))
+                .clock(rs.getLong(PlanBatchFields.CLOCK))
+                .build();
+    }
+}
@@ -0,0 +1,25 @@
+package com.rbkmoney.shumpune.dao.mapper;
+
+import com.rbkmoney.shumpune.constant.PlanFields;
+import com.rbkmoney.shumpune.constant.PostingOperation;
+import com.rbkmoney.shumpune.domain.PlanModel;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+@Component
+public class PlanModelMapper implements RowMapper<PlanModel> {
+
+    @Override
+    public PlanModel mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return PlanModel.builder()
+                .id(rs.getString(PlanFields.ID))
+                .status(PostingOperation.valueOf(rs.getString(PlanFields.STATUS)))
+                .maxBatchId(rs.getObject(PlanFields.MAX_BATCH_ID, Long.class))
+                .clock(rs.getObject(PlanFields.CLOCK, Long.class))
+                .postingCount(rs.getLong(PlanFields.POSTING_COUNT))
+                .build();
+    }
+}
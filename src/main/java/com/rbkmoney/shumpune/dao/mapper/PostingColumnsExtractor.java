@@ -0,0 +1,29 @@
+package com.rbkmoney.shumpune.dao.mapper;
+
+import com.rbkmoney.shumpune.constant.PostingLogFields;
+import com.rbkmoney.shumpune.constant.PostingOperation;
+import com.rbkmoney.shumpune.domain.PostingColumns;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+@Component
+public class PostingColumnsExtractor implements ResultSetExtractor<PostingColumns> {
+
+    @Override
+    public PostingColumns extractData(ResultSet rs) throws SQLException {
+        PostingColumns columns = new PostingColumns();
+        while (rs.next()) {
+            columns.add(rs.getLong(PostingLogFields.BATCH_ID),
+                    rs.getLong(PostingLogFields.FROM_ACCOUNT_ID),
+                    rs.getLong(PostingLogFields.TO_ACCOUNT_ID),
+                    rs.getLong(PostingLogFields.AMOUNT),
+                    PostingOperation.valueOf(rs.getString(PostingLogFields.OPERATION)),
+                    rs.getString(PostingLogFields.CURR_SYM_CODE),
+                    rs.getString(PostingLogFields.DESCRIPTION));
+        }
+        return columns;
+    }
+}
@@ -16,6 +16,7 @@ public class PostingModelMapper implements RowMapper<PostingModel> {
     @Override
     public PostingModel mapRow(ResultSet rs, int rowNum) throws SQLException {
         return PostingModel.builder()
+                .id(rs.getLong(PostingLogFields.ID))
                 .planId(rs.getString(PostingLogFields.PLAN_ID))
                 .operation(PostingOperation.valueOf(rs.getString(PostingLogFields.OPERATION)))
                 .batchId(rs.getLong(PostingLogFields.BATCH_ID))
@@ -0,0 +1,19 @@
+package com.rbkmoney.shumpune.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkAccount {
+
+    private Long id;
+    private String currencySymCode;
+    private String creationTime;
+    private String description;
+
+}
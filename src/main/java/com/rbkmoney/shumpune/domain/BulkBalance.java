@@ -0,0 +1,20 @@
+package com.rbkmoney.shumpune.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkBalance {
+
+    private Long id;
+    private Long ownAmount;
+    private Long maxAvailableAmount;
+    private Long minAvailableAmount;
+    private byte[] clock;
+
+}
@@ -0,0 +1,19 @@
+package com.rbkmoney.shumpune.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkRequest {
+
+    private List<Long> accountIds;
+    private byte[] clock;
+
+}
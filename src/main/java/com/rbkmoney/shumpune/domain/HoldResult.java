@@ -0,0 +1,24 @@
+package com.rbkmoney.shumpune.domain;
+
+import com.rbkmoney.shumpune.constant.HoldStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HoldResult {
+
+    private HoldStatus status;
+    private Long clock;
+    /**
+     * One message per posting for INVALID_POSTINGS (null for valid postings), the request errors for INVALID_REQUEST.
+     */
+    private List<String> errors;
+
+}
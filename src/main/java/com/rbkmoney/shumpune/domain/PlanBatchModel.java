@@ -0,0 +1,22 @@
+package com.rbkmoney.shumpune.domain;
+
+import com.rbkmoney.shumpune.constant.PostingOperation;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlanBatchModel {
+
+    private String planId;
+    private Long batchId;
+    private PostingOperation operation;
+    private Integer size;
+    private byte[] fingerprint;
+    private Long clock;
+
+}
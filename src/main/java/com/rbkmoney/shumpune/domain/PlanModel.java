@@ -0,0 +1,21 @@
+package com.rbkmoney.shumpune.domain;
+
+import com.rbkmoney.shumpune.constant.PostingOperation;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlanModel {
+
+    private String id;
+    private PostingOperation status;
+    private Long maxBatchId;
+    private Long clock;
+    private Long postingCount;
+
+}
@@ -0,0 +1,106 @@
+package com.rbkmoney.shumpune.domain;
+
+import com.rbkmoney.shumpune.constant.PostingOperation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Postings of a plan kept as primitive columns, so that reading a large plan does not allocate
+ * an object and boxed longs per posting. Currencies are dictionary encoded.
+ */
+public class PostingColumns {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final PostingOperation[] OPERATIONS = PostingOperation.values();
+
+    private final List<String> currencyDictionary = new ArrayList<>();
+    private final Map<String, Integer> currencyCodes = new HashMap<>();
+
+    private int size;
+    private long[] batchIds = new long[INITIAL_CAPACITY];
+    private long[] fromIds = new long[INITIAL_CAPACITY];
+    private long[] toIds = new long[INITIAL_CAPACITY];
+    private long[] amounts = new long[INITIAL_CAPACITY];
+    private byte[] operations = new byte[INITIAL_CAPACITY];
+    private int[] currencies = new int[INITIAL_CAPACITY];
+    private String[] descriptions = new String[INITIAL_CAPACITY];
+
+    public void add(long batchId, long fromId, long toId, long amount, PostingOperation operation,
+                    String currencySymCode, String description) {
+        if (size == batchIds.length) {
+            grow();
+        }
+        batchIds[size] = batchId;
+        fromIds[size] = fromId;
+        toIds[size] = toId;
+        amounts[size] = amount;
+        operations[size] = (byte) operation.ordinal();
+        currencies[size] = currencyCodes.computeIfAbsent(currencySymCode, code -> {
+            currencyDictionary.add(code);
+            return currencyDictionary.size() - 1;
+        });
+        descriptions[size] = description;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getBatchId(int index) {
+        return batchIds[index];
+    }
+
+    public long getFromId(int index) {
+        return fromIds[index];
+    }
+
+    public long getToId(int index) {
+        return toIds[index];
+    }
+
+    public long getAmount(int index) {
+        return amounts[index];
+    }
+
+    public PostingOperation getOperation(int index) {
+        return OPERATIONS[operations[index]];
+    }
+
+    public String getCurrencySymCode(int index) {
+        return currencyDictionary.get(currencies[index]);
+    }
+
+    public String getDescription(int index) {
+        return descriptions[index];
+    }
+
+    public boolean hasFinalOperation() {
+        for (int i = 0; i < size; i++) {
+            if (operations[i] != PostingOperation.HOLD.ordinal()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void grow() {
+        int capacity = batchIds.length * 2;
+        batchIds = Arrays.copyOf(batchIds, capacity);
+        fromIds = Arrays.copyOf(fromIds, capacity);
+        toIds = Arrays.copyOf(toIds, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        operations = Arrays.copyOf(operations, capacity);
+        currencies = Arrays.copyOf(currencies, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+    }
+
+}
@@ -14,6 +14,7 @@ import java.time.Instant;
 @AllArgsConstructor
 public class PostingModel {
 
+    private Long id;
     private String planId;
     private Long batchId;
     private Long accountFromId;
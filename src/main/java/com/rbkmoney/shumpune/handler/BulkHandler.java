@@ -0,0 +1,71 @@
+package com.rbkmoney.shumpune.handler;
+
+import com.google.common.primitives.Longs;
+import com.rbkmoney.damsel.shumpune.Clock;
+import com.rbkmoney.damsel.shumpune.LatestClock;
+import com.rbkmoney.damsel.shumpune.VectorClock;
+import com.rbkmoney.shumpune.config.BulkProperties;
+import com.rbkmoney.shumpune.dao.AccountDao;
+import com.rbkmoney.shumpune.domain.BulkAccount;
+import com.rbkmoney.shumpune.domain.BulkBalance;
+import com.rbkmoney.shumpune.domain.BulkRequest;
+import com.rbkmoney.shumpune.service.PostingPlanService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.thrift.TException;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BulkHandler {
+
+    private final AccountDao accountDao;
+    private final PostingPlanService postingPlanService;
+    private final BulkProperties bulkProperties;
+
+    public List<BulkBalance> getBalances(BulkRequest request) throws TException {
+        validate(request);
+        log.info("Start bulk getBalances accounts: {}", request.getAccountIds().size());
+        Clock clock = request.getClock() != null
+                ? Clock.vector(new VectorClock(ByteBuffer.wrap(request.getClock())))
+                : Clock.latest(new LatestClock());
+        return postingPlanService.getBalancesByIds(request.getAccountIds(), clock).stream()
+                .map(balance -> BulkBalance.builder()
+                        .id(balance.getAccountId())
+                        .ownAmount(balance.getOwnAmount())
+                        .maxAvailableAmount(balance.getMaxAvailableAmount())
+                        .minAvailableAmount(balance.getMinAvailableAmount())
+                        .clock(Longs.toByteArray(balance.getClock()))
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    public List<BulkAccount> getAccounts(BulkRequest request) {
+        validate(request);
+        log.info("Start bulk getAccounts accounts: {}", request.getAccountIds().size());
+        return accountDao.getAccountsByIds(request.getAccountIds()).values().stream()
+                .map(account -> BulkAccount.builder()
+                        .id(account.getId())
+                        .currencySymCode(account.getCurrencySymCode())
+                        .creationTime(account.getCreationTime())
+                        .description(account.getDescription())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    private void validate(BulkRequest request) {
+        if (request.getAccountIds() == null || request.getAccountIds().isEmpty()) {
+            throw new IllegalArgumentException("accountIds must not be empty");
+        }
+        if (request.getAccountIds().size() > bulkProperties.getMaxBatchSize()) {
+            throw new IllegalArgumentException(String.format("Too many accountIds: %d, max batch size: %d",
+                    request.getAccountIds().size(), bulkProperties.getMaxBatchSize()));
+        }
+    }
+
+}
@@ -1,23 +1,33 @@
 package com.rbkmoney.shumpune.handler;
 
 import com.rbkmoney.damsel.shumpune.*;
+import com.rbkmoney.shumpune.cache.PlanCache;
 import com.rbkmoney.shumpune.converter.BalanceModelToBalanceConverter;
-import com.rbkmoney.shumpune.converter.PostingModelToPostingBatchConverter;
+import com.rbkmoney.shumpune.converter.PostingColumnsToPostingBatchListConverter;
 import com.rbkmoney.shumpune.dao.AccountDao;
 import com.rbkmoney.shumpune.dao.PlanDao;
+import com.rbkmoney.shumpune.dao.PlanModelDao;
 import com.rbkmoney.shumpune.domain.BalanceModel;
-import com.rbkmoney.shumpune.domain.PostingModel;
+import com.rbkmoney.shumpune.domain.PlanModel;
+import com.rbkmoney.shumpune.domain.PostingColumns;
 import com.rbkmoney.shumpune.exception.DaoException;
+import com.rbkmoney.shumpune.routing.ReplicaRoutingContext;
+import com.rbkmoney.shumpune.routing.ReplicaSelector;
+import com.rbkmoney.shumpune.service.GroupCommitService;
 import com.rbkmoney.shumpune.service.PostingPlanService;
+import com.rbkmoney.shumpune.utils.VectorClockSerializer;
 import com.rbkmoney.woody.api.flow.error.WUnavailableResultException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.thrift.TException;
 import org.springframework.stereotype.Component;
 
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 @Slf4j
 @Component
@@ -26,15 +36,21 @@ public class ShumpuneServiceHandler implements AccounterSrv.Iface {
 
     private final AccountDao accountDao;
     private final PlanDao planDao;
+    private final PlanModelDao planModelDao;
     private final BalanceModelToBalanceConverter balanceModelToBalanceConverter;
-    private final PostingModelToPostingBatchConverter postingModelToPostingBatchConverter;
+    private final PostingColumnsToPostingBatchListConverter postingColumnsToPostingBatchListConverter;
     private final PostingPlanService postingPlanService;
+    private final GroupCommitService groupCommitService;
+    private final ReplicaSelector replicaSelector;
+    private final PlanCache planCache;
 
     @Override
     public Clock hold(PostingPlanChange postingPlanChange) throws TException {
         log.info("Start hold postingPlanChange: {}", postingPlanChange);
         try {
-            return postingPlanService.hold(postingPlanChange);
+            return groupCommitService.execute(postingPlanChange.getId(),
+                    accountIds(postingPlanChange.isSetBatch() ? List.of(postingPlanChange.getBatch()) : List.of()),
+                    () -> postingPlanService.hold(postingPlanChange));
         } catch (DaoException e) {
             log.error("Failed to hold e: ", e);
             throw new WUnavailableResultException(e);
@@ -48,7 +64,8 @@ public class ShumpuneServiceHandler implements AccounterSrv.Iface {
     public Clock commitPlan(PostingPlan postingPlan) throws TException {
         log.info("Start commitPlan postingPlan: {}", postingPlan);
         try {
-            return postingPlanService.commit(postingPlan);
+            return groupCommitService.execute(postingPlan.getId(), accountIds(postingPlan.getBatchList()),
+                    () -> postingPlanService.commit(postingPlan));
         } catch (DaoException e) {
             log.error("Failed to commitPlan e: ", e);
             throw new WUnavailableResultException(e);
@@ -62,7 +79,8 @@ public class ShumpuneServiceHandler implements AccounterSrv.Iface {
     public Clock rollbackPlan(PostingPlan postingPlan) throws TException {
         log.info("Start rollbackPlan postingPlan: {}", postingPlan);
         try {
-            return postingPlanService.rollback(postingPlan);
+            return groupCommitService.execute(postingPlan.getId(), accountIds(postingPlan.getBatchList()),
+                    () -> postingPlanService.rollback(postingPlan));
         } catch (DaoException e) {
             log.error("Failed to rollbackPlan e: ", e);
             throw new WUnavailableResultException(e);
@@ -76,15 +94,28 @@ public class ShumpuneServiceHandler implements AccounterSrv.Iface {
     public PostingPlan getPlan(String planId) throws PlanNotFound, TException {
         log.info("Start getPlan planId: {}", planId);
         try {
-            List<PostingModel> postingModelsPlanById = planDao.getPostingModelsPlanById(planId);
-            Map<Long, List<PostingModel>> collect = postingModelsPlanById.stream()
-                    .collect(Collectors.groupingBy(PostingModel::getBatchId));
-            List<PostingBatch> postingBatches = collect.entrySet().stream()
-                    .map(entry -> postingModelToPostingBatchConverter.convert(entry.getValue()).setId(entry.getKey()))
-                    .collect(Collectors.toList());
+            PostingPlan cached = planCache.get(planId);
+            if (cached != null) {
+                log.info("Finish getPlan from cache planId: {}", planId);
+                return cached;
+            }
+            // the header is read on the primary, the postings on a replica that has replayed them
+            PlanModel header = planModelDao.get(planId);
+            PostingColumns postings;
+            try {
+                if (header != null && header.getClock() != null) {
+                    ReplicaRoutingContext.set(replicaSelector.selectReplica(header.getClock()));
+                }
+                postings = planDao.getPostingColumnsByPlanId(planId);
+            } finally {
+                ReplicaRoutingContext.clear();
+            }
             PostingPlan postingPlan = new PostingPlan()
                     .setId(planId)
-                    .setBatchList(postingBatches);
+                    .setBatchList(postingColumnsToPostingBatchListConverter.convert(postings));
+            if (postings.hasFinalOperation()) {
+                planCache.put(postingPlan);
+            }
             log.info("Finish getPlan postingPlan: {}", postingPlan);
             return postingPlan;
         } catch (DaoException e) {
@@ -100,7 +131,9 @@ public class ShumpuneServiceHandler implements AccounterSrv.Iface {
     public Account getAccountByID(long accountId) throws TException {
         log.info("Start getAccountByID accountId: {}", accountId);
         try {
-            Account account = accountDao.getAccountById(accountId).orElseThrow(AccountNotFound::new);
+            // accounts never change, so a replica can only miss a new one and then the primary is asked
+            Account account = readFromReplica(() -> accountDao.getAccountById(accountId), Optional::isPresent)
+                    .orElseThrow(AccountNotFound::new);
             log.info("Finish createAccount accountId: {}", account);
             return account;
         } catch (DaoException e) {
@@ -116,7 +149,15 @@ public class ShumpuneServiceHandler implements AccounterSrv.Iface {
     public Balance getBalanceByID(long accountId, Clock clock) throws TException {
         log.info("Start getBalanceByID accountId: {} clock: {}", accountId, clock);
         try {
-            BalanceModel balance = postingPlanService.getBalanceById(accountId, clock);
+            BalanceModel balance;
+            try {
+                if (clock.isSetVector()) {
+                    ReplicaRoutingContext.set(replicaSelector.selectReplica(VectorClockSerializer.deserialize(clock.getVector())));
+                }
+                balance = postingPlanService.getBalanceById(accountId, clock);
+            } finally {
+                ReplicaRoutingContext.clear();
+            }
             log.info("Finish getBalanceByID balance: {}", balance);
             return balanceModelToBalanceConverter.convert(balance);
         } catch (Exception e) {
@@ -141,4 +182,35 @@ public class ShumpuneServiceHandler implements AccounterSrv.Iface {
         }
     }
 
+    private <T> T readFromReplica(Supplier<T> read, Predicate<T> found) {
+        String replica = replicaSelector.selectAnyReplica();
+        if (replica != null) {
+            try {
+                ReplicaRoutingContext.set(replica);
+                T result = read.get();
+                if (found.test(result)) {
+                    return result;
+                }
+            } finally {
+                ReplicaRoutingContext.clear();
+            }
+        }
+        // not replicated yet, e.g. created right before the read
+        return read.get();
+    }
+
+    private static Set<Long> accountIds(List<PostingBatch> batches) {
+        Set<Long> accountIds = new HashSet<>();
+        if (batches != null) {
+            batches.stream()
+                    .filter(PostingBatch::isSetPostings)
+                    .flatMap(batch -> batch.getPostings().stream())
+                    .forEach(posting -> {
+                        accountIds.add(posting.getFromId());
+                        accountIds.add(posting.getToId());
+                    });
+        }
+        return accountIds;
+    }
+
 }
@@ -0,0 +1,31 @@
+package com.rbkmoney.shumpune.routing;
+
+public class ReplicaRoutingContext {
+
+    private static final ThreadLocal<String> REPLICA = new ThreadLocal<>();
+
+    public static void set(String replica) {
+        REPLICA.set(replica);
+    }
+
+    public static String get() {
+        return REPLICA.get();
+    }
+
+    public static void clear() {
+        REPLICA.remove();
+    }
+
+    public static void runOnPrimary(Runnable runnable) {
+        String replica = REPLICA.get();
+        REPLICA.remove();
+        try {
+            runnable.run();
+        } finally {
+            if (replica != null) {
+                REPLICA.set(replica);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.rbkmoney.shumpune.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Sends connections to the replica named in {@link ReplicaRoutingContext}, or to the primary when none is set.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas;
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas) {
+        this.primary = primary;
+        this.replicas = replicas;
+        setDefaultTargetDataSource(primary);
+        setTargetDataSources(new HashMap<>(replicas));
+        setLenientFallback(false);
+    }
+
+    public Map<String, DataSource> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ReplicaRoutingContext.get();
+    }
+
+    @Override
+    public void destroy() {
+        Stream.concat(Stream.of(primary), replicas.values().stream())
+                .filter(HikariDataSource.class::isInstance)
+                .forEach(dataSource -> ((HikariDataSource) dataSource).close());
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.rbkmoney.shumpune.routing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Tracks how far every replica has replayed posting_log and picks one that has reached the clock of a read.
+ * Replicas are polled only by the scheduled refresh, a read that no replica has reached goes to the primary at once.
+ */
+@Slf4j
+@Component
+public class ReplicaSelector {
+
+    private static final String SQL_REPLAYED_CLOCK = "select coalesce(max(id), 0) from shm.posting_log";
+
+    private final Map<String, JdbcTemplate> replicas = new LinkedHashMap<>();
+    private final Map<String, Long> replayedClocks = new ConcurrentHashMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter replicaCounter;
+    private final Counter primaryCounter;
+
+    public ReplicaSelector(ReplicaRoutingDataSource dataSource, MeterRegistry meterRegistry) {
+        dataSource.getReplicas().forEach((name, replica) -> replicas.put(name, new JdbcTemplate(replica)));
+        this.replicaCounter = meterRegistry.counter("replica.route", "target", "replica");
+        this.primaryCounter = meterRegistry.counter("replica.route", "target", "primary");
+    }
+
+    @Scheduled(fixedDelayString = "${replica.poll-interval-ms:100}")
+    public void refresh() {
+        replicas.forEach((name, jdbcTemplate) -> {
+            try {
+                replayedClocks.put(name, jdbcTemplate.queryForObject(SQL_REPLAYED_CLOCK, Long.class));
+            } catch (DataAccessException e) {
+                log.warn("Failed to read replayed clock of replica: {}", name, e);
+                replayedClocks.remove(name);
+            }
+        });
+    }
+
+    /**
+     * @return replica that has replayed posting_log up to the clock, or null if the read has to go to the primary
+     */
+    public String selectReplica(long clock) {
+        String replica = pick(clock);
+        if (replica != null) {
+            replicaCounter.increment();
+        } else {
+            primaryCounter.increment();
+        }
+        return replica;
+    }
+
+    /**
+     * @return any reachable replica, for reads that do not depend on posting_log
+     */
+    public String selectAnyReplica() {
+        return selectReplica(0L);
+    }
+
+    private String pick(long clock) {
+        List<String> candidates = replayedClocks.entrySet().stream()
+                .filter(entry -> entry.getValue() >= clock)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        return candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+    }
+
+}
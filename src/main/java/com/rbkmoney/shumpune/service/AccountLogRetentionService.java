@@ -0,0 +1,62 @@
+package com.rbkmoney.shumpune.service;
+
+import com.rbkmoney.shumpune.config.AccountLogRetentionProperties;
+import com.rbkmoney.shumpune.dao.AccountLogDao;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Thins out account_log: every snapshot is kept for denseHours, then one per account and hour
+ * until hourlyDays, then one per account and day. Point-in-time reads stay bounded by at most a day of postings.
+ */
+@Slf4j
+@Service
+public class AccountLogRetentionService {
+
+    private final AccountLogDao accountLogDao;
+    private final AccountLogRetentionProperties properties;
+    private final Counter deletedCounter;
+
+    public AccountLogRetentionService(AccountLogDao accountLogDao,
+                                      AccountLogRetentionProperties properties,
+                                      MeterRegistry meterRegistry) {
+        this.accountLogDao = accountLogDao;
+        this.properties = properties;
+        this.deletedCounter = meterRegistry.counter("account_log.retention.deleted");
+    }
+
+    @Scheduled(fixedDelayString = "${account-log.retention.fixed-delay-ms:3600000}")
+    public void scheduledRun() {
+        if (properties.isEnabled()) {
+            applyRetention(Instant.now());
+        }
+    }
+
+    public synchronized int applyRetention(Instant now) {
+        LocalDateTime denseFrom = LocalDateTime.ofInstant(now.minus(Duration.ofHours(properties.getDenseHours())), ZoneOffset.UTC);
+        LocalDateTime hourlyFrom = LocalDateTime.ofInstant(now.minus(Duration.ofDays(properties.getHourlyDays())), ZoneOffset.UTC);
+        int total = 0;
+        // one day per statement: a day holds whole hourly and daily buckets, so each row is ranked once per run
+        LocalDateTime first = accountLogDao.getFirstCreationTime(LocalDateTime.ofInstant(Instant.EPOCH, ZoneOffset.UTC), denseFrom);
+        while (first != null) {
+            LocalDateTime from = first.truncatedTo(ChronoUnit.DAYS);
+            LocalDateTime to = from.plusDays(1).isBefore(denseFrom) ? from.plusDays(1) : denseFrom;
+            int deleted = accountLogDao.deleteSparseCheckpoints(from, to, hourlyFrom);
+            deletedCounter.increment(deleted);
+            total += deleted;
+            first = accountLogDao.getFirstCreationTime(to, denseFrom);
+        }
+        log.info("Account log retention finished, deleted: {}", total);
+        return total;
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.rbkmoney.shumpune.service;
+
+import com.rbkmoney.shumpune.config.AccountLogWriteBehindProperties;
+import com.rbkmoney.shumpune.dao.AccountLogDao;
+import com.rbkmoney.shumpune.domain.BalanceModel;
+import com.rbkmoney.shumpune.routing.ReplicaRoutingContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Snapshots are only a shortcut for balance calculation, so they are coalesced per account
+ * (highest clock wins) and dropped rather than blocking readers when the buffer is full.
+ */
+@Slf4j
+@Service
+public class AccountLogWriteBehindService {
+
+    private final AccountLogDao accountLogDao;
+    private final AccountLogWriteBehindProperties properties;
+    private final Map<Long, BalanceModel> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Counter droppedCounter;
+    private final Counter writtenCounter;
+
+    public AccountLogWriteBehindService(AccountLogDao accountLogDao,
+                                        AccountLogWriteBehindProperties properties,
+                                        MeterRegistry meterRegistry) {
+        this.accountLogDao = accountLogDao;
+        this.properties = properties;
+        this.droppedCounter = meterRegistry.counter("account_log.write_behind.dropped");
+        this.writtenCounter = meterRegistry.counter("account_log.write_behind.written");
+        meterRegistry.gaugeMapSize("account_log.write_behind.pending", Tags.empty(), pending);
+    }
+
+    public void submit(BalanceModel balance) {
+        if (!properties.isEnabled()) {
+            ReplicaRoutingContext.runOnPrimary(() -> accountLogDao.insert(balance));
+            return;
+        }
+        if (!enqueue(balance)) {
+            droppedCounter.increment();
+            log.debug("Account_log write-behind buffer is full, snapshot dropped: {}", balance);
+            return;
+        }
+        if (pendingCount.get() >= properties.getBatchSize() && flushScheduled.compareAndSet(false, true)) {
+            flushExecutor.execute(() -> {
+                flushScheduled.set(false);
+                flush();
+            });
+        }
+    }
+
+    private boolean enqueue(BalanceModel balance) {
+        while (true) {
+            if (pending.computeIfPresent(balance.getAccountId(), (accountId, current) -> newer(current, balance)) != null) {
+                return true;
+            }
+            // a new account takes a slot first, so concurrent submits cannot overshoot max-pending
+            if (pendingCount.incrementAndGet() > properties.getMaxPending()) {
+                pendingCount.decrementAndGet();
+                return false;
+            }
+            if (pending.putIfAbsent(balance.getAccountId(), balance) == null) {
+                return true;
+            }
+            pendingCount.decrementAndGet();
+        }
+    }
+
+    private BalanceModel newer(BalanceModel current, BalanceModel fresh) {
+        return fresh.getClock() > current.getClock() ? fresh : current;
+    }
+
+    @Scheduled(fixedDelayString = "${account-log.write-behind.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<BalanceModel> batch = new ArrayList<>(properties.getBatchSize());
+        for (Long accountId : pending.keySet()) {
+            BalanceModel balance = pending.remove(accountId);
+            if (balance != null) {
+                pendingCount.decrementAndGet();
+                batch.add(balance);
+            }
+            if (batch.size() >= properties.getBatchSize()) {
+                write(batch);
+                batch = new ArrayList<>(properties.getBatchSize());
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdown();
+        flush();
+    }
+
+    private void write(List<BalanceModel> batch) {
+        try {
+            accountLogDao.insertBatch(batch);
+            writtenCounter.increment(batch.size());
+        } catch (Exception e) {
+            droppedCounter.increment(batch.size());
+            log.warn("Failed to write account_log snapshots, {} snapshots dropped", batch.size(), e);
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.rbkmoney.shumpune.service;
+
+import com.rbkmoney.shumpune.config.BalanceCoalescingProperties;
+import com.rbkmoney.shumpune.domain.BalanceModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.thrift.TException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
+
+/**
+ * Lets concurrent balance reads of one account share a single computation. A request that finds
+ * one in flight waits for it and takes its result when it covers the required clock,
+ * otherwise it computes on its own.
+ */
+@Slf4j
+@Component
+public class BalanceLoadCoalescer {
+
+    private final boolean enabled;
+    private final ConcurrentMap<Long, CompletableFuture<BalanceModel>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalescedCounter;
+    private final Counter staleCounter;
+
+    public BalanceLoadCoalescer(BalanceCoalescingProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.coalescedCounter = meterRegistry.counter("balance.coalesced");
+        this.staleCounter = meterRegistry.counter("balance.coalesced.stale");
+    }
+
+    public BalanceModel load(Long accountId, Predicate<BalanceModel> covers, Callable<BalanceModel> loader) throws TException {
+        if (!enabled) {
+            return call(loader);
+        }
+        CompletableFuture<BalanceModel> running = inFlight.get(accountId);
+        if (running != null) {
+            BalanceModel shared = await(running);
+            if (shared != null && covers.test(shared)) {
+                coalescedCounter.increment();
+                return shared.toBuilder().build();
+            }
+            staleCounter.increment();
+        }
+        CompletableFuture<BalanceModel> own = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(accountId, own) != null) {
+            return call(loader);
+        }
+        try {
+            BalanceModel balance = call(loader);
+            own.complete(balance.toBuilder().build());
+            return balance;
+        } catch (TException | RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(accountId, own);
+        }
+    }
+
+    int waiting(Long accountId) {
+        CompletableFuture<BalanceModel> running = inFlight.get(accountId);
+        return running != null ? running.getNumberOfDependents() : 0;
+    }
+
+    private BalanceModel await(CompletableFuture<BalanceModel> running) throws TException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TException(e);
+        } catch (ExecutionException e) {
+            // the owner reports its own failure, this request retries on its own
+            log.debug("Shared balance computation failed", e.getCause());
+            return null;
+        }
+    }
+
+    private BalanceModel call(Callable<BalanceModel> loader) throws TException {
+        try {
+            return loader.call();
+        } catch (TException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new TException(e);
+        }
+    }
+
+}
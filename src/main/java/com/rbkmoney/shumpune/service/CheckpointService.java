@@ -0,0 +1,137 @@
+package com.rbkmoney.shumpune.service;
+
+import com.rbkmoney.shumpune.cache.BalanceCache;
+import com.rbkmoney.shumpune.config.CheckpointProperties;
+import com.rbkmoney.shumpune.dao.AccountLogDao;
+import com.rbkmoney.shumpune.dao.PlanDao;
+import com.rbkmoney.shumpune.domain.BalanceModel;
+import com.rbkmoney.shumpune.utils.BalanceModelUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Precomputes account_log checkpoints for accounts that are far behind, so that the first
+ * balance read after a quiet period does not have to sum the whole posting_log backlog.
+ */
+@Slf4j
+@Service
+public class CheckpointService {
+
+    private final PlanDao planDao;
+    private final AccountLogDao accountLogDao;
+    private final BalanceCache balanceCache;
+    private final CheckpointProperties properties;
+    private final ExecutorService workers;
+    private final Timer runTimer;
+    private final DistributionSummary lagSummary;
+    private final Counter createdCounter;
+    private final AtomicLong maxLag = new AtomicLong();
+
+    private long sinceClock;
+
+    public CheckpointService(PlanDao planDao,
+                             AccountLogDao accountLogDao,
+                             BalanceCache balanceCache,
+                             CheckpointProperties properties,
+                             MeterRegistry meterRegistry) {
+        this.planDao = planDao;
+        this.accountLogDao = accountLogDao;
+        this.balanceCache = balanceCache;
+        this.properties = properties;
+        this.workers = properties.isEnabled() ? Executors.newFixedThreadPool(properties.getWorkers()) : null;
+        this.runTimer = meterRegistry.timer("checkpoint.run");
+        this.lagSummary = meterRegistry.summary("checkpoint.lag");
+        this.createdCounter = meterRegistry.counter("checkpoint.created");
+        meterRegistry.gauge("checkpoint.lag.max", maxLag);
+    }
+
+    @Scheduled(fixedDelayString = "${checkpoint.fixed-delay-ms:60000}")
+    public void scheduledRun() {
+        if (properties.isEnabled()) {
+            runTimer.record(this::createCheckpoints);
+        }
+    }
+
+    public synchronized void createCheckpoints() {
+        long maxClock = planDao.getMaxClock();
+        Map<Long, Long> lags = planDao.getAccountsBehindCheckpoint(sinceClock, properties.getLagThreshold(), properties.getBudget());
+        maxLag.set(lags.values().stream().mapToLong(Long::longValue).max().orElse(0L));
+        lags.values().forEach(lagSummary::record);
+
+        List<BalanceModel> checkpoints;
+        try {
+            checkpoints = createAll(lags.keySet());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        // accounts cut off by the budget or failed have to be found again on the next run
+        if (lags.size() < properties.getBudget() && checkpoints.stream().allMatch(Objects::nonNull)) {
+            sinceClock = maxClock;
+        }
+        log.info("Checkpoint run finished, accounts: {} max lag: {} next since clock: {}", lags.size(), maxLag.get(), sinceClock);
+    }
+
+    private List<BalanceModel> createAll(Collection<Long> accountIds) throws InterruptedException {
+        if (workers == null) {
+            // the pool exists only for the scheduled job, a manual run while it is disabled goes in this thread
+            return accountIds.stream().map(this::createCheckpoint).collect(Collectors.toList());
+        }
+        List<Callable<BalanceModel>> tasks = accountIds.stream()
+                .map(accountId -> (Callable<BalanceModel>) () -> createCheckpoint(accountId))
+                .collect(Collectors.toList());
+        List<BalanceModel> checkpoints = new ArrayList<>(tasks.size());
+        for (Future<BalanceModel> future : workers.invokeAll(tasks)) {
+            try {
+                checkpoints.add(future.get());
+            } catch (ExecutionException e) {
+                checkpoints.add(null);
+            }
+        }
+        return checkpoints;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    private BalanceModel createCheckpoint(Long accountId) {
+        try {
+            BalanceModel lastBalance = accountLogDao.getLastBalanceById(accountId);
+            long fromClock = lastBalance != null ? lastBalance.getClock() : 0L;
+            long toClock = planDao.getMaxClockByAccountId(accountId);
+            BalanceModel balance = BalanceModelUtils.merge(lastBalance, planDao.getBalance(accountId, fromClock, toClock));
+            accountLogDao.insert(balance);
+            balanceCache.put(balance);
+            createdCounter.increment();
+            return balance;
+        } catch (Exception e) {
+            log.warn("Failed to create checkpoint for account: {}", accountId, e);
+            return null;
+        }
+    }
+
+}
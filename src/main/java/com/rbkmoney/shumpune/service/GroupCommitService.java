@@ -0,0 +1,250 @@
+package com.rbkmoney.shumpune.service;
+
+import com.rbkmoney.damsel.shumpune.Clock;
+import com.rbkmoney.shumpune.config.GroupCommitProperties;
+import com.rbkmoney.shumpune.config.RunningBalanceProperties;
+import com.rbkmoney.shumpune.dao.AccountBalanceDao;
+import com.rbkmoney.shumpune.dao.PlanModelDao;
+import com.rbkmoney.shumpune.exception.DaoException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.thrift.TException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Gathers concurrent posting requests and writes them in one transaction, so that one commit
+ * is paid per group instead of per request. Every request runs in its own savepoint
+ * (the service methods use NESTED propagation), a failed one is rolled back alone.
+ * When the group transaction itself fails, every request is retried in a transaction of its own.
+ * <p>
+ * A group takes its locks in one order: the requests run sorted by plan id, and before them
+ * the plan headers and then the balance rows of the whole group are locked sorted by id,
+ * so two groups never wait on each other in opposite order.
+ */
+@Slf4j
+@Service
+public class GroupCommitService {
+
+    private final GroupCommitProperties properties;
+    private final RunningBalanceProperties runningBalanceProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final PlanModelDao planModelDao;
+    private final AccountBalanceDao accountBalanceDao;
+    private final BlockingQueue<Task> queue;
+    private final DistributionSummary batchSizeSummary;
+    private final Counter rejectedCounter;
+    private final Counter retriedCounter;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public GroupCommitService(GroupCommitProperties properties,
+                              RunningBalanceProperties runningBalanceProperties,
+                              TransactionTemplate transactionTemplate,
+                              PlanModelDao planModelDao,
+                              AccountBalanceDao accountBalanceDao,
+                              MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.runningBalanceProperties = runningBalanceProperties;
+        this.transactionTemplate = transactionTemplate;
+        this.planModelDao = planModelDao;
+        this.accountBalanceDao = accountBalanceDao;
+        this.queue = new LinkedBlockingQueue<>(properties.getQueueCapacity());
+        this.batchSizeSummary = meterRegistry.summary("group_commit.batch_size");
+        this.rejectedCounter = meterRegistry.counter("group_commit.rejected");
+        this.retriedCounter = meterRegistry.counter("group_commit.retried");
+    }
+
+    @PostConstruct
+    public void start() {
+        if (properties.isEnabled()) {
+            running = true;
+            worker = new Thread(this::run, "group-commit");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        List<Task> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        rest.forEach(task -> task.future.completeExceptionally(new DaoException("Group commit is stopped")));
+    }
+
+    public Clock execute(String planId, Collection<Long> accountIds, Callable<Clock> work) throws TException {
+        if (!properties.isEnabled()) {
+            return call(work);
+        }
+        Task task = new Task(planId, accountIds, work, new CompletableFuture<>());
+        if (!queue.offer(task)) {
+            rejectedCounter.increment();
+            throw new DaoException("Group commit queue is full");
+        }
+        try {
+            return task.future.get(properties.getTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TException(e);
+        } catch (TimeoutException e) {
+            // the request may still be committed later, the caller retries it like any unavailable result
+            throw new DaoException("Group commit timed out");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TException) {
+                throw (TException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new TException(cause);
+        }
+    }
+
+    private void run() {
+        while (running) {
+            List<Task> batch = new ArrayList<>();
+            try {
+                Task first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    collect(batch);
+                    process(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(batch, e);
+                return;
+            } catch (Throwable e) {
+                // the worker must survive anything, otherwise every queued caller waits for nothing
+                log.error("Group commit worker failed", e);
+                fail(batch, e);
+            }
+        }
+    }
+
+    private void collect(List<Task> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getWindowMs());
+        while (batch.size() < properties.getMaxBatchSize()) {
+            long wait = deadline - System.nanoTime();
+            Task next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void process(List<Task> batch) {
+        batchSizeSummary.record(batch.size());
+        batch.sort(Comparator.comparing(task -> task.planId));
+        try {
+            complete(batch, runInTransaction(batch));
+        } catch (RuntimeException e) {
+            // a failed transaction must not fail the whole group, every request gets a transaction of its own
+            log.warn("Group commit of {} requests failed, retrying them one by one", batch.size(), e);
+            retriedCounter.increment(batch.size());
+            for (Task task : batch) {
+                try {
+                    complete(List.of(task), runInTransaction(List.of(task)));
+                } catch (RuntimeException taskException) {
+                    log.error("Group commit retry failed", taskException);
+                    task.future.completeExceptionally(taskException);
+                }
+            }
+        }
+    }
+
+    private List<Object> runInTransaction(List<Task> tasks) {
+        List<Object> results = new ArrayList<>(tasks.size());
+        transactionTemplate.execute(status -> {
+            if (tasks.size() > 1) {
+                lock(tasks);
+            }
+            for (Task task : tasks) {
+                try {
+                    results.add(task.work.call());
+                } catch (Exception e) {
+                    results.add(e);
+                }
+            }
+            return null;
+        });
+        return results;
+    }
+
+    private void lock(List<Task> tasks) {
+        Set<String> planIds = new TreeSet<>();
+        Set<Long> accountIds = new TreeSet<>();
+        for (Task task : tasks) {
+            planIds.add(task.planId);
+            accountIds.addAll(task.accountIds);
+        }
+        planModelDao.lockForUpdate(planIds);
+        if (runningBalanceProperties.isEnabled()) {
+            accountBalanceDao.lockForUpdate(accountIds);
+        }
+    }
+
+    private void fail(List<Task> batch, Throwable e) {
+        // futures that are already complete keep their result
+        batch.forEach(task -> task.future.completeExceptionally(e));
+    }
+
+    private void complete(List<Task> tasks, List<Object> results) {
+        // futures complete only after the commit, so callers never see an uncommitted clock
+        for (int i = 0; i < tasks.size(); i++) {
+            Object result = results.get(i);
+            if (result instanceof Exception) {
+                tasks.get(i).future.completeExceptionally((Exception) result);
+            } else {
+                tasks.get(i).future.complete((Clock) result);
+            }
+        }
+    }
+
+    private Clock call(Callable<Clock> work) throws TException {
+        try {
+            return work.call();
+        } catch (TException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new TException(e);
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class Task {
+
+        private final String planId;
+        private final Collection<Long> accountIds;
+        private final Callable<Clock> work;
+        private final CompletableFuture<Clock> future;
+
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.rbkmoney.shumpune.service;
+
+import com.rbkmoney.shumpune.config.PostingLogArchiveProperties;
+import com.rbkmoney.shumpune.dao.PlanDao;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Moves full posting_log partitions, oldest first, into the shm_archive schema once every account
+ * in them is checkpointed past their rows. Stops at the first partition that is still needed.
+ */
+@Slf4j
+@Service
+public class PostingLogArchiveService {
+
+    private final PlanDao planDao;
+    private final PostingLogArchiveProperties properties;
+    private final Counter archivedCounter;
+
+    public PostingLogArchiveService(PlanDao planDao, PostingLogArchiveProperties properties, MeterRegistry meterRegistry) {
+        this.planDao = planDao;
+        this.properties = properties;
+        this.archivedCounter = meterRegistry.counter("posting_log.archive.partitions");
+    }
+
+    @Scheduled(fixedDelayString = "${posting-log.archive.check-interval-ms:3600000}")
+    public void scheduledRun() {
+        if (properties.isEnabled()) {
+            try {
+                archive();
+            } catch (Exception e) {
+                log.error("Failed to archive posting_log partitions", e);
+            }
+        }
+    }
+
+    public int archive() {
+        int archived = 0;
+        for (String partition : planDao.getArchivablePartitions(properties.getKeepPartitions())) {
+            if (!planDao.archivePartition(partition)) {
+                log.info("Partition {} has postings behind checkpoints, archiving stopped", partition);
+                break;
+            }
+            log.info("Archived posting_log partition {}", partition);
+            archivedCounter.increment();
+            archived++;
+        }
+        return archived;
+    }
+
+}
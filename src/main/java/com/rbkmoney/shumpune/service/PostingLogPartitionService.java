@@ -0,0 +1,36 @@
+package com.rbkmoney.shumpune.service;
+
+import com.rbkmoney.shumpune.config.PostingLogPartitionProperties;
+import com.rbkmoney.shumpune.dao.PlanDao;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps posting_log partitions created ahead of the id sequence, inserts fail if they run out.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PostingLogPartitionService {
+
+    private final PlanDao planDao;
+    private final PostingLogPartitionProperties properties;
+
+    @Scheduled(fixedDelayString = "${posting-log.partition.check-interval-ms:3600000}")
+    public void scheduledRun() {
+        if (properties.isEnabled()) {
+            createPartitions();
+        }
+    }
+
+    public int createPartitions() {
+        int created = planDao.createPartitions(properties.getSize(), properties.getAhead());
+        if (created > 0) {
+            log.info("Created {} posting_log partitions of size {}", created, properties.getSize());
+        }
+        return created;
+    }
+
+}
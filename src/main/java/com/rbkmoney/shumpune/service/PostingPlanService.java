@@ -6,6 +6,8 @@ import com.rbkmoney.damsel.shumpune.PostingPlanChange;
 import com.rbkmoney.shumpune.domain.BalanceModel;
 import org.apache.thrift.TException;
 
+import java.util.List;
+
 public interface PostingPlanService {
 
     Clock hold(PostingPlanChange postingPlanChange) throws TException;
@@ -16,4 +18,6 @@ public interface PostingPlanService {
 
     BalanceModel getBalanceById(Long id, Clock clock) throws TException;
 
+    List<BalanceModel> getBalancesByIds(List<Long> ids, Clock clock) throws TException;
+
 }
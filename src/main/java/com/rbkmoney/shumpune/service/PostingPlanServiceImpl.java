@@ -1,18 +1,36 @@
 package com.rbkmoney.shumpune.service;
 
 import com.rbkmoney.damsel.shumpune.Clock;
+import com.rbkmoney.damsel.shumpune.InvalidPostingParams;
+import com.rbkmoney.damsel.shumpune.Posting;
 import com.rbkmoney.damsel.shumpune.PostingBatch;
 import com.rbkmoney.damsel.shumpune.PostingPlan;
 import com.rbkmoney.damsel.shumpune.PostingPlanChange;
 import com.rbkmoney.damsel.shumpune.base.InvalidRequest;
+import com.rbkmoney.shumpune.cache.BalanceCache;
+import com.rbkmoney.shumpune.cache.PlanCache;
+import com.rbkmoney.shumpune.config.HoldFunctionProperties;
+import com.rbkmoney.shumpune.config.PointInTimeBalanceProperties;
+import com.rbkmoney.shumpune.config.RunningBalanceProperties;
 import com.rbkmoney.shumpune.constant.PostingOperation;
+import com.rbkmoney.shumpune.converter.PostingModelListToBalanceModelListConverter;
 import com.rbkmoney.shumpune.converter.PostingPlanToListPostingModelListConverter;
 import com.rbkmoney.shumpune.converter.PostingPlanToPostingPlanModelConverter;
+import com.rbkmoney.shumpune.dao.AccountBalanceDao;
 import com.rbkmoney.shumpune.dao.AccountLogDao;
+import com.rbkmoney.shumpune.dao.HoldFunctionDao;
+import com.rbkmoney.shumpune.dao.PlanBatchDao;
 import com.rbkmoney.shumpune.dao.PlanDaoImpl;
+import com.rbkmoney.shumpune.dao.PlanModelDao;
 import com.rbkmoney.shumpune.domain.BalanceModel;
+import com.rbkmoney.shumpune.domain.HoldResult;
+import com.rbkmoney.shumpune.domain.PlanBatchModel;
+import com.rbkmoney.shumpune.domain.PlanModel;
 import com.rbkmoney.shumpune.domain.PostingModel;
 import com.rbkmoney.shumpune.domain.PostingPlanModel;
+import com.rbkmoney.shumpune.exception.DaoException;
+import com.rbkmoney.shumpune.utils.BalanceModelUtils;
+import com.rbkmoney.shumpune.utils.FingerprintUtils;
 import com.rbkmoney.shumpune.utils.VectorClockSerializer;
 import com.rbkmoney.shumpune.validator.FinalOpValidator;
 import com.rbkmoney.shumpune.validator.PostingBatchValidator;
@@ -21,12 +39,17 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.thrift.TException;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -36,76 +59,290 @@ public class PostingPlanServiceImpl implements PostingPlanService {
 
     private final PostingPlanToPostingPlanModelConverter postingPlanToPostingPlanModelConverter;
     private final PlanDaoImpl planDao;
+    private final PlanBatchDao planBatchDao;
+    private final PlanModelDao planModelDao;
     private final AccountLogDao accountLogDao;
     private final FinalOpValidator finalOpValidator;
     private final PostingBatchValidator postingBatchValidator;
     private final PostingsUpdateValidator postingsUpdateValidator;
     private final PostingPlanToListPostingModelListConverter postingPlanToListPostingModelListConverter;
+    private final PostingModelListToBalanceModelListConverter postingModelListToBalanceModelListConverter;
+    private final AccountBalanceDao accountBalanceDao;
+    private final RunningBalanceProperties runningBalanceProperties;
+    private final PointInTimeBalanceProperties pointInTimeBalanceProperties;
+    private final BalanceCache balanceCache;
+    private final PlanCache planCache;
+    private final AccountLogWriteBehindService accountLogWriteBehindService;
+    private final BalanceLoadCoalescer balanceLoadCoalescer;
+    private final HoldFunctionDao holdFunctionDao;
+    private final HoldFunctionProperties holdFunctionProperties;
 
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.NESTED, rollbackFor = TException.class)
     public Clock hold(PostingPlanChange postingPlanChange) throws TException {
+        if (holdFunctionProperties.isEnabled()) {
+            return holdWithFunction(postingPlanChange);
+        }
         postingBatchValidator.validate(postingPlanChange.getBatch(), postingPlanChange.getId());
 
         PostingPlanModel postingPlanModel = postingPlanToPostingPlanModelConverter.convert(postingPlanChange, PostingOperation.HOLD);
 
-        Map<Long, List<PostingModel>> postingLogs = planDao.getPostingLogs(postingPlanChange.getId(), PostingOperation.HOLD);
-
-        if (postingLogs.containsKey(postingPlanChange.getBatch().getId())) {
-            postingsUpdateValidator.validate(List.of(postingPlanChange.getBatch()), postingLogs);
-            log.info("This is duplicate request (HOLD), postingPlanChange: {}", postingPlanChange);
-            return Clock.vector(VectorClockSerializer.serialize(
-                    planDao.selectMaxClock(postingPlanChange.getId(), postingPlanChange.getBatch().getId())));
+        // the locked header serializes concurrent requests on one plan, a batch ahead of it is new.
+        // A first attempt never reads plan_batch, so an in-process filter of written keys would have nothing
+        // to skip, and it could not see keys written by other nodes or before a restart
+        PlanModel plan = planModelDao.createOrGetForUpdate(postingPlanChange.getId());
+        long batchId = postingPlanChange.getBatch().getId();
+        if (plan.getMaxBatchId() != null && batchId <= plan.getMaxBatchId()) {
+            PlanBatchModel hold = planBatchDao.getBatch(postingPlanChange.getId(), batchId, PostingOperation.HOLD);
+            if (hold != null) {
+                postingsUpdateValidator.validate(List.of(postingPlanChange.getBatch()), Map.of(batchId, hold));
+                log.info("This is duplicate request (HOLD), postingPlanChange: {}", postingPlanChange);
+                return Clock.vector(VectorClockSerializer.serialize(hold.getClock()));
+            }
         }
 
-        long clock = planDao.insertPostings(postingPlanModel.getPostingModels());
+        long clock = insertPostings(postingPlanModel.getPostingModels(), postingPlanChange.getId(), PostingOperation.HOLD);
 
         return Clock.vector(VectorClockSerializer.serialize(clock));
     }
 
+    private Clock holdWithFunction(PostingPlanChange postingPlanChange) throws TException {
+        PostingBatch batch = postingPlanChange.getBatch();
+        if (batch == null) {
+            // rejected before any account lookup
+            postingBatchValidator.validate(null, postingPlanChange.getId());
+        }
+        List<PostingModel> postingModels = batch.isSetPostings()
+                ? postingPlanToPostingPlanModelConverter.convert(postingPlanChange, PostingOperation.HOLD).getPostingModels()
+                : Collections.emptyList();
+
+        HoldResult result = holdFunctionDao.hold(postingPlanChange.getId(), batch.getId(), postingModels,
+                FingerprintUtils.ofModels(postingModels), runningBalanceProperties.isEnabled());
+        switch (result.getStatus()) {
+            case INVALID_POSTINGS:
+                Map<Posting, String> errors = new HashMap<>();
+                for (int i = 0; i < batch.getPostingsSize(); i++) {
+                    if (result.getErrors().get(i) != null) {
+                        errors.put(batch.getPostings().get(i), result.getErrors().get(i));
+                    }
+                }
+                log.warn("Batch: {} errors: {}", batch.getId(), errors);
+                throw new InvalidPostingParams(errors);
+            case INVALID_REQUEST:
+                log.warn("Hold of plan: {} rejected: {}", postingPlanChange.getId(), result.getErrors());
+                throw new InvalidRequest(result.getErrors());
+            case DUPLICATE:
+                log.info("This is duplicate request (HOLD), postingPlanChange: {}", postingPlanChange);
+                break;
+            case OK:
+                invalidatePlanAfterCommit(postingPlanChange.getId());
+                break;
+            default:
+                throw new DaoException("Hold function returned unexpected status: " + result.getStatus());
+        }
+        return Clock.vector(VectorClockSerializer.serialize(result.getClock()));
+    }
+
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.NESTED, rollbackFor = TException.class)
     public Clock commit(PostingPlan postingPlan) throws TException {
         return finalOperation(postingPlan, PostingOperation.COMMIT);
     }
 
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.NESTED, rollbackFor = TException.class)
     public Clock rollback(PostingPlan postingPlan) throws TException {
         return finalOperation(postingPlan, PostingOperation.ROLLBACK);
     }
 
     @Override
     public BalanceModel getBalanceById(Long accountId, Clock clock) throws TException {
+        if (runningBalanceProperties.isEnabled()) {
+            BalanceModel balance = accountBalanceDao.getBalanceById(accountId);
+            if (isHistorical(clock, balance.getClock())) {
+                return getHistoricalBalance(accountId, VectorClockSerializer.deserialize(clock.getVector()));
+            }
+            return balance;
+        }
+
         long clockValue = getClockValue(accountId, clock);
 
-        BalanceModel lastBalanceById = accountLogDao.getLastBalanceById(accountId);
+        return balanceLoadCoalescer.load(accountId,
+                shared -> shared.getClock() >= clockValue && !isHistorical(clock, shared.getClock()),
+                () -> loadBalance(accountId, clock, clockValue));
+    }
+
+    private BalanceModel loadBalance(Long accountId, Clock clock, long clockValue) {
+        BalanceModel lastBalanceById = balanceCache.get(accountId);
+        if (lastBalanceById == null) {
+            lastBalanceById = accountLogDao.getLastBalanceById(accountId);
+        }
 
         long fromClock = 0L;
         if (lastBalanceById != null) {
+            if (isHistorical(clock, lastBalanceById.getClock())) {
+                return getHistoricalBalance(accountId, clockValue);
+            }
             if (lastBalanceById.getClock() >= clockValue) {
+                balanceCache.put(lastBalanceById);
                 return lastBalanceById;
             }
             fromClock = lastBalanceById.getClock();
         }
 
-        long maxClockForAccount = initMaxClockForAccount(accountId, clock, clockValue);
-
-        BalanceModel balance = planDao.getBalance(accountId, fromClock, maxClockForAccount);
-        if (lastBalanceById != null) {
-            balance.setOwnAmount(lastBalanceById.getOwnAmount() + balance.getOwnAmount());
-            balance.setMaxAvailableAmount(lastBalanceById.getMaxAvailableAmount() + balance.getMaxAvailableAmount());
-            balance.setMinAvailableAmount(lastBalanceById.getMinAvailableAmount() + balance.getMinAvailableAmount());
+        // postings of an archived account are all behind its checkpoint
+        long maxClockForAccount = Math.max(initMaxClockForAccount(accountId, clock, clockValue), fromClock);
+        if (isHistorical(clock, maxClockForAccount)) {
+            return getHistoricalBalance(accountId, clockValue);
         }
 
-        Long idLog = accountLogDao.insert(balance);
+        BalanceModel balance = BalanceModelUtils.merge(lastBalanceById,
+                planDao.getBalance(accountId, fromClock, maxClockForAccount));
+
+        accountLogWriteBehindService.submit(balance);
+        balanceCache.put(balance);
 
-        log.info("Created new balance log with for account: {} with id: {} ownAmount: {} minAmount: {} maxAmount: {} for clock: {}",
-                accountId, idLog, balance.getOwnAmount(), balance.getMinAvailableAmount(), balance.getMaxAvailableAmount(), balance.getClock());
+        log.info("Calculated new balance for account: {} ownAmount: {} minAmount: {} maxAmount: {} for clock: {}",
+                accountId, balance.getOwnAmount(), balance.getMinAvailableAmount(), balance.getMaxAvailableAmount(), balance.getClock());
 
         return balance;
     }
 
+    @Override
+    public List<BalanceModel> getBalancesByIds(List<Long> ids, Clock clock) throws TException {
+        List<Long> accountIds = ids.stream().distinct().collect(Collectors.toList());
+        Map<Long, BalanceModel> balances = new HashMap<>();
+        List<Long> historical = new ArrayList<>();
+
+        if (runningBalanceProperties.isEnabled()) {
+            accountBalanceDao.getBalancesByIds(accountIds).forEach((accountId, balance) -> {
+                if (isHistorical(clock, balance.getClock())) {
+                    historical.add(accountId);
+                } else {
+                    balances.put(accountId, balance);
+                }
+            });
+        } else {
+            Map<Long, Long> maxClocks = planDao.getMaxClocksByAccountIds(accountIds);
+            List<Long> current = new ArrayList<>();
+            maxClocks.forEach((accountId, maxClock) -> {
+                if (isHistorical(clock, maxClock)) {
+                    historical.add(accountId);
+                } else {
+                    current.add(accountId);
+                }
+            });
+            balances.putAll(getCurrentBalances(current, clock, maxClocks));
+        }
+
+        if (!historical.isEmpty()) {
+            long clockValue = VectorClockSerializer.deserialize(clock.getVector());
+            Map<Long, BalanceModel> checkpoints = accountLogDao.getBalancesAtClock(historical, clockValue);
+            Map<Long, Long> fromClocks = new HashMap<>();
+            Map<Long, Long> toClocks = new HashMap<>();
+            for (Long accountId : historical) {
+                BalanceModel checkpoint = checkpoints.get(accountId);
+                fromClocks.put(accountId, checkpoint != null ? checkpoint.getClock() : 0L);
+                toClocks.put(accountId, clockValue);
+            }
+            planDao.getHistoricalBalances(fromClocks, toClocks).forEach((accountId, delta) ->
+                    balances.put(accountId, BalanceModelUtils.merge(checkpoints.get(accountId), delta)));
+        }
+
+        return ids.stream().map(balances::get).collect(Collectors.toList());
+    }
+
+    private Map<Long, BalanceModel> getCurrentBalances(List<Long> accountIds, Clock clock, Map<Long, Long> maxClocks) {
+        Map<Long, BalanceModel> balances = new HashMap<>();
+        Map<Long, BalanceModel> snapshots = new HashMap<>();
+        List<Long> notCached = new ArrayList<>();
+        for (Long accountId : accountIds) {
+            BalanceModel cached = balanceCache.get(accountId);
+            if (cached != null) {
+                snapshots.put(accountId, cached);
+            } else {
+                notCached.add(accountId);
+            }
+        }
+        if (!notCached.isEmpty()) {
+            snapshots.putAll(accountLogDao.getLastBalancesByIds(notCached));
+        }
+
+        Map<Long, Long> fromClocks = new HashMap<>();
+        Map<Long, Long> toClocks = new HashMap<>();
+        for (Long accountId : accountIds) {
+            long clockValue = clock.isSetVector() ? VectorClockSerializer.deserialize(clock.getVector()) : maxClocks.get(accountId);
+            BalanceModel snapshot = snapshots.get(accountId);
+            if (snapshot != null && snapshot.getClock() >= clockValue) {
+                balanceCache.put(snapshot);
+                balances.put(accountId, snapshot);
+            } else {
+                long fromClock = snapshot != null ? snapshot.getClock() : 0L;
+                fromClocks.put(accountId, fromClock);
+                toClocks.put(accountId, Math.max(maxClocks.get(accountId), fromClock));
+            }
+        }
+
+        if (!toClocks.isEmpty()) {
+            planDao.getBalances(fromClocks, toClocks).forEach((accountId, delta) -> {
+                BalanceModel balance = BalanceModelUtils.merge(snapshots.get(accountId), delta);
+                accountLogWriteBehindService.submit(balance);
+                balanceCache.put(balance);
+                balances.put(accountId, balance);
+            });
+        }
+        return balances;
+    }
+
+    private boolean isHistorical(Clock clock, long currentClock) {
+        return pointInTimeBalanceProperties.isEnabled()
+                && clock.isSetVector()
+                && currentClock > VectorClockSerializer.deserialize(clock.getVector());
+    }
+
+    private BalanceModel getHistoricalBalance(Long accountId, long clockValue) {
+        BalanceModel checkpoint = accountLogDao.getBalanceAtClock(accountId, clockValue);
+        long fromClock = checkpoint != null ? checkpoint.getClock() : 0L;
+        return BalanceModelUtils.merge(checkpoint, planDao.getHistoricalBalance(accountId, fromClock, clockValue));
+    }
+
+    private long insertPostings(List<PostingModel> postingModels, String planId, PostingOperation operation) {
+        Map<Long, Long> batchClocks = planDao.insertPostings(postingModels);
+        long clock = Collections.max(batchClocks.values());
+        Map<Long, List<PostingModel>> batches = postingModels.stream()
+                .collect(Collectors.groupingBy(PostingModel::getBatchId));
+        planBatchDao.insertBatches(batches.entrySet().stream()
+                .map(batch -> PlanBatchModel.builder()
+                        .planId(planId)
+                        .batchId(batch.getKey())
+                        .operation(operation)
+                        .size(batch.getValue().size())
+                        .fingerprint(FingerprintUtils.ofModels(batch.getValue()))
+                        .clock(batchClocks.get(batch.getKey()))
+                        .build())
+                .collect(Collectors.toList()));
+        planModelDao.addPostings(planId, operation, Collections.max(batches.keySet()), clock, postingModels.size());
+        invalidatePlanAfterCommit(planId);
+        if (runningBalanceProperties.isEnabled()) {
+            accountBalanceDao.addDeltas(postingModelListToBalanceModelListConverter.convert(postingModels, clock));
+        }
+        return clock;
+    }
+
+    private void invalidatePlanAfterCommit(String planId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            planCache.invalidate(planId);
+            return;
+        }
+        // a reader may still cache the committed plan until this transaction commits
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                planCache.invalidate(planId);
+            }
+        });
+    }
+
     private long initMaxClockForAccount(Long id, Clock clock, long clockValue) {
         long maxClockByAccountId = clockValue;
         if (clock.isSetVector()) {
@@ -127,35 +364,32 @@ public class PostingPlanServiceImpl implements PostingPlanService {
 
     private Clock finalOperation(PostingPlan postingPlan, PostingOperation postingOperation) throws TException {
         finalOpValidator.validate(postingPlan);
-        for (PostingBatch postingBatch : postingPlan.getBatchList()) {
-            postingBatchValidator.validate(postingBatch, postingPlan.getId());
-        }
+        postingBatchValidator.validateBatches(postingPlan.getBatchList(), postingPlan.getId());
 
-        List<PostingModel> postingModels = planDao.getPostingModelsPlanById(postingPlan.getId());
+        PlanModel plan = planModelDao.getForUpdate(postingPlan.getId());
 
-        if (postingModels.isEmpty()) {
+        if (plan == null || plan.getPostingCount() == 0) {
             throw new InvalidRequest(Collections.singletonList(String.format("Hold OPERATION not found for plan: %s", postingPlan.getId())));
         }
 
-        Map<Long, List<PostingModel>> postingLogsHolds = postingModels.stream()
-                .filter(postingModel -> postingModel.getOperation().equals(PostingOperation.HOLD))
-                .collect(Collectors.groupingBy(PostingModel::getBatchId));
-
-        Map<Long, List<PostingModel>> postingLogsFinal = postingModels.stream()
-                .filter(postingModel -> !postingModel.getOperation().equals(PostingOperation.HOLD))
-                .collect(Collectors.groupingBy(PostingModel::getBatchId));
+        List<PlanBatchModel> batches = planBatchDao.getBatches(postingPlan.getId());
 
-        if (!postingLogsFinal.isEmpty()) {
-            postingsUpdateValidator.validate(postingPlan.getBatchList(), postingLogsFinal);
+        if (plan.getStatus() != PostingOperation.HOLD) {
+            Map<Long, PlanBatchModel> finals = batches.stream()
+                    .filter(batch -> batch.getOperation() != PostingOperation.HOLD)
+                    .collect(Collectors.toMap(PlanBatchModel::getBatchId, Function.identity()));
+            postingsUpdateValidator.validate(postingPlan.getBatchList(), finals);
             log.info("This is duplicate request ({}), postingPlan: {}", postingOperation, postingPlan);
-            PostingModel postingModel = postingModels.stream().max(Comparator.comparingLong(PostingModel::getBatchId))
-                    .orElseThrow(); //never happens, but sonarqube complains
-            return Clock.vector(VectorClockSerializer.serialize(planDao.selectMaxClock(postingPlan.getId(), postingModel.getBatchId())));
+            return Clock.vector(VectorClockSerializer.serialize(plan.getClock()));
         }
 
-        postingsUpdateValidator.validate(postingPlan.getBatchList(), postingLogsHolds);
+        Map<Long, PlanBatchModel> holds = batches.stream()
+                .filter(batch -> batch.getOperation() == PostingOperation.HOLD)
+                .collect(Collectors.toMap(PlanBatchModel::getBatchId, Function.identity()));
+        postingsUpdateValidator.validate(postingPlan.getBatchList(), holds);
 
-        long clock = planDao.insertPostings(postingPlanToListPostingModelListConverter.convert(postingPlan, postingOperation));
+        long clock = insertPostings(postingPlanToListPostingModelListConverter.convert(postingPlan, postingOperation),
+                postingPlan.getId(), postingOperation);
 
         return Clock.vector(VectorClockSerializer.serialize(clock));
     }
@@ -0,0 +1,54 @@
+package com.rbkmoney.shumpune.servlet;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rbkmoney.shumpune.domain.BulkRequest;
+import com.rbkmoney.shumpune.exception.DaoException;
+import com.rbkmoney.shumpune.handler.BulkHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+@Slf4j
+@WebServlet("/shumpune/bulk/*")
+public class BulkServlet extends HttpServlet {
+
+    @Autowired
+    private BulkHandler bulkHandler;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse res) throws IOException {
+        try {
+            BulkRequest request = objectMapper.readValue(req.getInputStream(), BulkRequest.class);
+            Object result;
+            if ("/balances".equals(req.getPathInfo())) {
+                result = bulkHandler.getBalances(request);
+            } else if ("/accounts".equals(req.getPathInfo())) {
+                result = bulkHandler.getAccounts(request);
+            } else {
+                res.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            res.setContentType("application/json");
+            objectMapper.writeValue(res.getOutputStream(), result);
+        } catch (IllegalArgumentException | JsonProcessingException e) {
+            log.warn("Bad bulk request e: ", e);
+            res.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+        } catch (DaoException e) {
+            log.error("Failed bulk request e: ", e);
+            res.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        } catch (Exception e) {
+            log.error("Failed bulk request e: ", e);
+            res.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+}
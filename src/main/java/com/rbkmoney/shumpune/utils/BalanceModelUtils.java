@@ -0,0 +1,16 @@
+package com.rbkmoney.shumpune.utils;
+
+import com.rbkmoney.shumpune.domain.BalanceModel;
+
+public class BalanceModelUtils {
+
+    public static BalanceModel merge(BalanceModel snapshot, BalanceModel delta) {
+        if (snapshot != null) {
+            delta.setOwnAmount(snapshot.getOwnAmount() + delta.getOwnAmount());
+            delta.setMaxAvailableAmount(snapshot.getMaxAvailableAmount() + delta.getMaxAvailableAmount());
+            delta.setMinAvailableAmount(snapshot.getMinAvailableAmount() + delta.getMinAvailableAmount());
+        }
+        return delta;
+    }
+
+}
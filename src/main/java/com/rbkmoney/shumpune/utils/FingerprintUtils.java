@@ -0,0 +1,60 @@
+package com.rbkmoney.shumpune.utils;
+
+import com.google.common.primitives.Bytes;
+import com.google.common.primitives.Longs;
+import com.rbkmoney.damsel.shumpune.Posting;
+import com.rbkmoney.shumpune.domain.PostingModel;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Order independent fingerprint of a posting batch: the per posting md5 hashes are summed as two 64 bit lanes,
+ * so equal multisets of postings give equal fingerprints. shm.posting_hash computes the same hash in the database.
+ */
+public class FingerprintUtils {
+
+    public static byte[] ofPostings(Collection<Posting> postings) {
+        long[] sum = new long[2];
+        for (Posting posting : postings) {
+            add(sum, hash(posting.getAmount(), posting.getFromId(), posting.getToId(),
+                    posting.getCurrencySymCode(), posting.getDescription()));
+        }
+        return toBytes(sum);
+    }
+
+    public static byte[] ofModels(Collection<PostingModel> postingModels) {
+        long[] sum = new long[2];
+        for (PostingModel model : postingModels) {
+            add(sum, hash(model.getAmount(), model.getAccountFromId(), model.getAccountToId(),
+                    model.getCurrencySymbCode(), model.getDescription()));
+        }
+        return toBytes(sum);
+    }
+
+    private static byte[] hash(long amount, long fromId, long toId, String currencySymCode, String description) {
+        String canonical = amount + "," + fromId + "," + toId + "," + lengthPrefixed(currencySymCode) + "," + lengthPrefixed(description);
+        try {
+            return MessageDigest.getInstance("MD5").digest(canonical.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String lengthPrefixed(String value) {
+        return value == null ? "-1:" : value.getBytes(StandardCharsets.UTF_8).length + ":" + value;
+    }
+
+    private static void add(long[] sum, byte[] hash) {
+        sum[0] += Longs.fromByteArray(Arrays.copyOfRange(hash, 0, 8));
+        sum[1] += Longs.fromByteArray(Arrays.copyOfRange(hash, 8, 16));
+    }
+
+    private static byte[] toBytes(long[] sum) {
+        return Bytes.concat(Longs.toByteArray(sum[0]), Longs.toByteArray(sum[1]));
+    }
+
+}
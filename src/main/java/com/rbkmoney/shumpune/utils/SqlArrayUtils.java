@@ -0,0 +1,20 @@
+package com.rbkmoney.shumpune.utils;
+
+import org.springframework.jdbc.core.support.AbstractSqlTypeValue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+
+public class SqlArrayUtils {
+
+    public static AbstractSqlTypeValue bigintArray(Collection<Long> values) {
+        return new AbstractSqlTypeValue() {
+            @Override
+            protected Object createTypeValue(Connection con, int sqlType, String typeName) throws SQLException {
+                return con.createArrayOf("bigint", values.toArray());
+            }
+        };
+    }
+
+}
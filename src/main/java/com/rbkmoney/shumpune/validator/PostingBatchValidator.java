@@ -30,23 +30,43 @@ public class PostingBatchValidator {
     private final AccountDao accountDao;
 
     public void validate(PostingBatch batch, String planId) throws TException {
-        if (batch == null) {
-            log.warn("Plan {} has not batches inside", planId);
-            throw new InvalidRequest(Collections.singletonList(String.format(POSTING_PLAN_EMPTY, planId)));
-        }
-        List<Posting> postings = batch.postings;
-        if (postings == null || postings.isEmpty()) {
-            log.warn("Batch {} has no postings inside", batch.getId());
-            throw new InvalidRequest(Collections.singletonList(String.format(POSTING_BATCH_EMPTY, batch.getId())));
+        validateBatches(Collections.singletonList(batch), planId);
+    }
+
+    public void validateBatches(List<PostingBatch> batches, String planId) throws TException {
+        Map<Long, Account> accounts = getAccounts(batches);
+        for (PostingBatch batch : batches) {
+            if (batch == null) {
+                log.warn("Plan {} has not batches inside", planId);
+                throw new InvalidRequest(Collections.singletonList(String.format(POSTING_PLAN_EMPTY, planId)));
+            }
+            List<Posting> postings = batch.postings;
+            if (postings == null || postings.isEmpty()) {
+                log.warn("Batch {} has no postings inside", batch.getId());
+                throw new InvalidRequest(Collections.singletonList(String.format(POSTING_BATCH_EMPTY, batch.getId())));
+            }
+            Map<Posting, String> errors = validatePostings(batch, accounts);
+            if (!errors.isEmpty()) {
+                log.warn("Batch: {} errors: {}", batch.getId(), errors);
+                throw new InvalidPostingParams(errors);
+            }
         }
-        Map<Posting, String> errors = validatePostings(batch);
-        if (!errors.isEmpty()) {
-            log.warn("Batch: {} errors: {}", batch.getId(), errors);
-            throw new InvalidPostingParams(errors);
+    }
+
+    private Map<Long, Account> getAccounts(List<PostingBatch> batches) {
+        Set<Long> accountIds = new HashSet<>();
+        for (PostingBatch batch : batches) {
+            if (batch != null && batch.postings != null) {
+                for (Posting posting : batch.postings) {
+                    accountIds.add(posting.getFromId());
+                    accountIds.add(posting.getToId());
+                }
+            }
         }
+        return accountIds.isEmpty() ? Collections.emptyMap() : accountDao.getAccountsByIds(accountIds);
     }
 
-    private Map<Posting, String> validatePostings(PostingBatch batch) {
+    private Map<Posting, String> validatePostings(PostingBatch batch, Map<Long, Account> accounts) {
         Map<Posting, String> errors = new HashMap<>();
         for (Posting posting : batch.postings) {
             List<String> errorMessages = new ArrayList<>();
@@ -57,8 +77,8 @@ public class PostingBatchValidator {
                 errorMessages.add(AMOUNT_NEGATIVE_ERR);
             }
 
-            Optional<Account> fromAccount = accountDao.getAccountById(posting.getFromId());
-            Optional<Account> toAccount = accountDao.getAccountById(posting.getToId());
+            Optional<Account> fromAccount = Optional.ofNullable(accounts.get(posting.getFromId()));
+            Optional<Account> toAccount = Optional.ofNullable(accounts.get(posting.getToId()));
             String currencySymCode = posting.getCurrencySymCode();
 
             if (fromAccount.isEmpty() || toAccount.isEmpty()) {
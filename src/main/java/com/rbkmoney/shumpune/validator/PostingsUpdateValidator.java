@@ -1,15 +1,16 @@
 package com.rbkmoney.shumpune.validator;
 
 
-import com.rbkmoney.damsel.shumpune.Posting;
 import com.rbkmoney.damsel.shumpune.PostingBatch;
 import com.rbkmoney.damsel.shumpune.base.InvalidRequest;
-import com.rbkmoney.shumpune.domain.PostingModel;
+import com.rbkmoney.shumpune.domain.PlanBatchModel;
+import com.rbkmoney.shumpune.utils.FingerprintUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.thrift.TException;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -25,7 +26,7 @@ public class PostingsUpdateValidator {
     private static final String POSTING_IN_BATCH_INVALID = "Posting in batch id: %d invalid";
     private static final String POSTING_BATCH_SIZE_IS_INCORRECT = "Posting in batch id: %d size: %d but in old size: %d";
 
-    public void validate(List<PostingBatch> receivedBatchList, Map<Long, List<PostingModel>> savedBatches) throws TException {
+    public void validate(List<PostingBatch> receivedBatchList, Map<Long, PlanBatchModel> savedBatches) throws TException {
         Set<Long> receivedBatchIds = receivedBatchList.stream()
                 .map(PostingBatch::getId)
                 .collect(Collectors.toSet());
@@ -38,10 +39,10 @@ public class PostingsUpdateValidator {
         }
 
         for (PostingBatch receivedBatch : receivedBatchList) {
-            List<PostingModel> savedBatch = savedBatches.get(receivedBatch.getId());
+            PlanBatchModel savedBatch = savedBatches.get(receivedBatch.getId());
             if (savedBatch != null) {
                 validateBatchSize(receivedBatch, savedBatch);
-                if (!compareBatches(receivedBatch, savedBatch)) {
+                if (!Arrays.equals(FingerprintUtils.ofPostings(receivedBatch.getPostings()), savedBatch.getFingerprint())) {
                     log.warn("Posting in batch id: {} invalid", receivedBatch.getId());
                     throw new InvalidRequest(Collections.singletonList(String.format(POSTING_IN_BATCH_INVALID, receivedBatch.getId())));
                 }
@@ -49,30 +50,16 @@ public class PostingsUpdateValidator {
         }
     }
 
-    private boolean compareBatches(PostingBatch batch, List<PostingModel> postingModels) {
-        return postingModels.stream()
-                .allMatch(postingModel -> batch.getPostings().stream()
-                        .anyMatch(posting -> compare(postingModel, posting)));
-    }
-
-    private void validateBatchSize(PostingBatch batch, List<PostingModel> postingModels) throws InvalidRequest {
+    private void validateBatchSize(PostingBatch batch, PlanBatchModel savedBatch) throws InvalidRequest {
         int sizeNew = batch.getPostings() != null ? batch.getPostings().size() : 0;
-        int sizeOld = postingModels.size();
+        int sizeOld = savedBatch.getSize();
         if (sizeNew != sizeOld) {
             log.warn("Posting in batch id: {} size: {} but in old size: {}", batch.getId(), sizeNew, sizeOld);
             throw new InvalidRequest(Collections.singletonList(String.format(POSTING_BATCH_SIZE_IS_INCORRECT, batch.getId(), sizeNew, sizeOld)));
         }
     }
 
-    private boolean compare(PostingModel postingModel, Posting posting) {
-        return posting.getAmount() == postingModel.getAmount()
-                && posting.getFromId() == postingModel.getAccountFromId()
-                && posting.getToId() == postingModel.getAccountToId()
-                && posting.getCurrencySymCode().equals(postingModel.getCurrencySymbCode())
-                && posting.getDescription().equals(postingModel.getDescription());
-    }
-
-    private long minKey(Set<Long> receivedProtocolBatchLogs, Map<Long, List<PostingModel>> postingsModels) {
+    private long minKey(Set<Long> receivedProtocolBatchLogs, Map<Long, PlanBatchModel> postingsModels) {
         return receivedProtocolBatchLogs
                 .stream()
                 .filter(id -> !postingsModels.containsKey(id))
@@ -81,7 +68,7 @@ public class PostingsUpdateValidator {
                 .orElse(Long.MAX_VALUE);
     }
 
-    private long maxKey(Map<Long, List<PostingModel>> postingsModels) {
+    private long maxKey(Map<Long, PlanBatchModel> postingsModels) {
         return postingsModels.keySet().stream()
                 .mapToLong(Long::longValue)
                 .max()
@@ -0,0 +1,98 @@
+-- one round trip hold: must follow PostingBatchValidator, PostingPlanServiceImpl.hold and its insertPostings
+CREATE FUNCTION shm.hold_posting_batch(p_plan_id character varying, p_batch_id bigint,
+                                       p_from_ids bigint[], p_to_ids bigint[], p_amounts bigint[],
+                                       p_curr_sym_codes character varying[], p_descriptions character varying[],
+                                       p_creation_time timestamp without time zone, p_fingerprint bytea,
+                                       p_running_balance boolean,
+                                       OUT status text, OUT clock bigint, OUT errors text[]) AS
+$$
+DECLARE
+  v_size  integer := coalesce(array_length(p_amounts, 1), 0);
+  v_plan  shm.plan;
+  v_batch shm.plan_batch;
+BEGIN
+  IF v_size = 0 THEN
+    status := 'INVALID_REQUEST';
+    errors := ARRAY [format('Posting batch (%s) has no postings inside', p_batch_id)];
+    RETURN;
+  END IF;
+
+  SELECT array_agg(nullif(array_to_string(ARRAY [
+             CASE WHEN p.from_id = p.to_id THEN 'Source and target accounts cannot be the same' END,
+             CASE WHEN p.amount < 0 THEN 'Amount cannot be negative' END,
+             CASE WHEN fa.id IS NULL OR ta.id IS NULL THEN 'Account for posting not found!' END,
+             CASE
+               WHEN (fa.id IS NOT NULL AND fa.curr_sym_code IS DISTINCT FROM p.curr_sym_code)
+                 OR (ta.id IS NOT NULL AND ta.curr_sym_code IS DISTINCT FROM p.curr_sym_code)
+                 THEN 'Currency account not equals OPERATION currency!' END], '; '), '') ORDER BY p.ord)
+  INTO errors
+  FROM unnest(p_from_ids, p_to_ids, p_amounts, p_curr_sym_codes) WITH ORDINALITY AS p(from_id, to_id, amount, curr_sym_code, ord)
+         LEFT JOIN shm.account fa ON fa.id = p.from_id
+         LEFT JOIN shm.account ta ON ta.id = p.to_id;
+  IF EXISTS(SELECT 1 FROM unnest(errors) AS e WHERE e IS NOT NULL) THEN
+    status := 'INVALID_POSTINGS';
+    RETURN;
+  END IF;
+  errors := NULL;
+
+  INSERT INTO shm.plan(id, status, posting_count) VALUES (p_plan_id, 'HOLD', 0) ON CONFLICT (id) DO NOTHING;
+  SELECT * INTO v_plan FROM shm.plan WHERE id = p_plan_id FOR UPDATE;
+
+  IF v_plan.max_batch_id IS NOT NULL AND p_batch_id <= v_plan.max_batch_id THEN
+    SELECT * INTO v_batch FROM shm.plan_batch
+    WHERE plan_id = p_plan_id AND batch_id = p_batch_id AND operation = 'HOLD';
+    -- a batch that is not saved yet is new, whatever its id
+    IF FOUND THEN
+      IF v_batch.size <> v_size THEN
+        status := 'INVALID_REQUEST';
+        errors := ARRAY [format('Posting in batch id: %s size: %s but in old size: %s', p_batch_id, v_size, v_batch.size)];
+      ELSIF v_batch.fingerprint <> p_fingerprint THEN
+        status := 'INVALID_REQUEST';
+        errors := ARRAY [format('Posting in batch id: %s invalid', p_batch_id)];
+      ELSE
+        status := 'DUPLICATE';
+        clock := v_batch.clock;
+      END IF;
+      RETURN;
+    END IF;
+  END IF;
+
+  WITH inserted AS (
+    INSERT INTO shm.posting_log(plan_id, batch_id, from_account_id, to_account_id, operation, amount, creation_time,
+                                curr_sym_code, description)
+      SELECT p_plan_id, p_batch_id, from_id, to_id, 'HOLD', amount, p_creation_time, curr_sym_code, description
+      FROM unnest(p_from_ids, p_to_ids, p_amounts, p_curr_sym_codes, p_descriptions)
+             WITH ORDINALITY AS p(from_id, to_id, amount, curr_sym_code, description, ord)
+      ORDER BY ord
+      RETURNING id)
+  SELECT max(id) INTO clock FROM inserted;
+
+  INSERT INTO shm.plan_batch(plan_id, batch_id, operation, size, fingerprint, clock)
+  VALUES (p_plan_id, p_batch_id, 'HOLD', v_size, p_fingerprint, clock);
+
+  UPDATE shm.plan
+  SET max_batch_id  = greatest(max_batch_id, p_batch_id),
+      clock         = greatest(shm.plan.clock, hold_posting_batch.clock),
+      posting_count = posting_count + v_size
+  WHERE id = p_plan_id;
+
+  IF p_running_balance THEN
+    -- sorted by account id so that concurrent transactions lock balance rows in the same order
+    INSERT INTO shm.account_balance AS balance(account_id, own_amount, max_available_amount, min_available_amount, clock)
+    SELECT account_id, 0, sum(max_available_amount), sum(min_available_amount), hold_posting_batch.clock
+    FROM (SELECT from_id AS account_id, 0 AS max_available_amount, -amount AS min_available_amount
+          FROM unnest(p_from_ids, p_amounts) AS p(from_id, amount)
+          UNION ALL
+          SELECT to_id AS account_id, amount AS max_available_amount, 0 AS min_available_amount
+          FROM unnest(p_to_ids, p_amounts) AS p(to_id, amount)) deltas
+    GROUP BY account_id
+    ORDER BY account_id
+    ON CONFLICT (account_id) DO UPDATE SET
+      max_available_amount = balance.max_available_amount + EXCLUDED.max_available_amount,
+      min_available_amount = balance.min_available_amount + EXCLUDED.min_available_amount,
+      clock = greatest(balance.clock, EXCLUDED.clock);
+  END IF;
+
+  status := 'OK';
+END
+$$ LANGUAGE plpgsql;
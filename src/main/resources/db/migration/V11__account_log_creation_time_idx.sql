@@ -0,0 +1,4 @@
+CREATE INDEX account_log_creation_time_idx
+  ON shm.account_log
+    USING btree
+    (creation_time);
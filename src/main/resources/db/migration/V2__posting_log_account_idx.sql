@@ -0,0 +1,9 @@
+CREATE INDEX posting_log_from_account_id_idx
+  ON shm.posting_log
+    USING btree
+    (from_account_id, id);
+
+CREATE INDEX posting_log_to_account_id_idx
+  ON shm.posting_log
+    USING btree
+    (to_account_id, id);
@@ -0,0 +1,29 @@
+CREATE TABLE shm.account_balance
+(
+  account_id           bigint NOT NULL,
+  own_amount           BIGINT NOT NULL DEFAULT 0,
+  max_available_amount BIGINT NOT NULL DEFAULT 0,
+  min_available_amount BIGINT NOT NULL DEFAULT 0,
+  clock                BIGINT NOT NULL DEFAULT 0,
+  CONSTRAINT account_balance_pkey PRIMARY KEY (account_id)
+)
+  WITH (
+    OIDS= FALSE
+  );
+
+INSERT INTO shm.account_balance(account_id, own_amount, max_available_amount, min_available_amount, clock)
+SELECT account_id, sum(own_amount), sum(max_available_amount), sum(min_available_amount), max(id)
+FROM (SELECT from_account_id                                                     AS account_id,
+             id,
+             CASE operation WHEN 'COMMIT' THEN -amount ELSE 0 END                AS own_amount,
+             CASE operation WHEN 'COMMIT' THEN -amount ELSE 0 END                AS max_available_amount,
+             CASE operation WHEN 'HOLD' THEN -amount WHEN 'ROLLBACK' THEN amount ELSE 0 END AS min_available_amount
+      FROM shm.posting_log
+      UNION ALL
+      SELECT to_account_id                                                       AS account_id,
+             id,
+             CASE operation WHEN 'COMMIT' THEN amount ELSE 0 END                 AS own_amount,
+             CASE operation WHEN 'HOLD' THEN amount WHEN 'ROLLBACK' THEN -amount ELSE 0 END AS max_available_amount,
+             CASE operation WHEN 'COMMIT' THEN amount ELSE 0 END                 AS min_available_amount
+      FROM shm.posting_log) deltas
+GROUP BY account_id;
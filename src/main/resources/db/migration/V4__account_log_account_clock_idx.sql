@@ -0,0 +1,4 @@
+CREATE INDEX account_log_account_id_clock_idx
+  ON shm.account_log
+    USING btree
+    (account_id, clock DESC);
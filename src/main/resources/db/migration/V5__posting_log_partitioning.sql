@@ -0,0 +1,84 @@
+-- existing rows stay in place and become the first partition
+ALTER TABLE shm.posting_log RENAME TO posting_log_legacy;
+ALTER TABLE shm.posting_log_legacy RENAME CONSTRAINT posting_log_pkey TO posting_log_legacy_pkey;
+ALTER INDEX shm.posting_log_plan_id_idx RENAME TO posting_log_legacy_plan_id_idx;
+ALTER INDEX shm.posting_log_from_account_id_idx RENAME TO posting_log_legacy_from_account_id_idx;
+ALTER INDEX shm.posting_log_to_account_id_idx RENAME TO posting_log_legacy_to_account_id_idx;
+
+CREATE TABLE shm.posting_log
+(
+  id              bigint                      NOT NULL DEFAULT nextval('shm.posting_log_id_seq'),
+  plan_id         character varying(64)       NOT NULL,
+  batch_id        bigint                      NOT NULL,
+  from_account_id bigint                      NOT NULL,
+  to_account_id   bigint                      NOT NULL,
+  operation       shm.posting_operation_type  NOT NULL,
+  amount          bigint                      NOT NULL,
+  creation_time   timestamp without time zone NOT NULL,
+  curr_sym_code   character varying(4)        NOT NULL,
+  description     character varying,
+  CONSTRAINT posting_log_pkey PRIMARY KEY (id)
+) PARTITION BY RANGE (id);
+
+ALTER TABLE shm.posting_log_legacy ALTER COLUMN id DROP DEFAULT;
+ALTER SEQUENCE shm.posting_log_id_seq OWNED BY shm.posting_log.id;
+
+CREATE INDEX posting_log_plan_id_idx
+  ON shm.posting_log
+    USING btree
+    (plan_id, batch_id);
+
+CREATE INDEX posting_log_from_account_id_idx
+  ON shm.posting_log
+    USING btree
+    (from_account_id, id);
+
+CREATE INDEX posting_log_to_account_id_idx
+  ON shm.posting_log
+    USING btree
+    (to_account_id, id);
+
+CREATE TABLE shm.posting_log_partition
+(
+  name    character varying NOT NULL,
+  from_id bigint            NOT NULL,
+  to_id   bigint            NOT NULL,
+  CONSTRAINT posting_log_partition_pkey PRIMARY KEY (name)
+);
+
+DO
+$$
+  DECLARE
+    v_size  bigint := 10000000;
+    v_upper bigint;
+  BEGIN
+    SELECT (coalesce(max(id), 0) / v_size + 1) * v_size INTO v_upper FROM shm.posting_log_legacy;
+    -- ATTACH scans the legacy rows to check the bound, the table is already locked by the renames above
+    EXECUTE format('ALTER TABLE shm.posting_log ATTACH PARTITION shm.posting_log_legacy FOR VALUES FROM (MINVALUE) TO (%s)', v_upper);
+    INSERT INTO shm.posting_log_partition(name, from_id, to_id) VALUES ('posting_log_legacy', 0, v_upper);
+  END
+$$;
+
+CREATE FUNCTION shm.create_posting_log_partitions(p_size bigint, p_ahead integer) RETURNS integer AS
+$$
+DECLARE
+  v_last    bigint;
+  v_current bigint;
+  v_created integer := 0;
+BEGIN
+  LOCK TABLE shm.posting_log_partition IN EXCLUSIVE MODE;
+  SELECT max(to_id) INTO v_last FROM shm.posting_log_partition;
+  SELECT last_value INTO v_current FROM shm.posting_log_id_seq;
+  WHILE v_last <= v_current + p_size * p_ahead
+    LOOP
+      EXECUTE format('CREATE TABLE shm.%I PARTITION OF shm.posting_log FOR VALUES FROM (%s) TO (%s)',
+                     'posting_log_' || v_last, v_last, v_last + p_size);
+      INSERT INTO shm.posting_log_partition(name, from_id, to_id) VALUES ('posting_log_' || v_last, v_last, v_last + p_size);
+      v_last := v_last + p_size;
+      v_created := v_created + 1;
+    END LOOP;
+  RETURN v_created;
+END
+$$ LANGUAGE plpgsql;
+
+SELECT shm.create_posting_log_partitions(10000000, 2);
@@ -0,0 +1,12 @@
+CREATE INDEX posting_log_from_account_id_covering_idx
+  ON shm.posting_log
+    USING btree
+    (from_account_id, id) INCLUDE (operation, amount);
+
+CREATE INDEX posting_log_to_account_id_covering_idx
+  ON shm.posting_log
+    USING btree
+    (to_account_id, id) INCLUDE (operation, amount);
+
+DROP INDEX shm.posting_log_from_account_id_idx;
+DROP INDEX shm.posting_log_to_account_id_idx;
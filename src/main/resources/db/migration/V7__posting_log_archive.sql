@@ -0,0 +1,105 @@
+CREATE SCHEMA IF NOT EXISTS shm_archive;
+
+CREATE TABLE shm_archive.posting_log
+(
+  id              bigint                      NOT NULL,
+  plan_id         character varying(64)       NOT NULL,
+  batch_id        bigint                      NOT NULL,
+  from_account_id bigint                      NOT NULL,
+  to_account_id   bigint                      NOT NULL,
+  operation       shm.posting_operation_type  NOT NULL,
+  amount          bigint                      NOT NULL,
+  creation_time   timestamp without time zone NOT NULL,
+  curr_sym_code   character varying(4)        NOT NULL,
+  description     character varying,
+  CONSTRAINT posting_log_pkey PRIMARY KEY (id)
+) PARTITION BY RANGE (id);
+
+CREATE INDEX posting_log_plan_id_idx
+  ON shm_archive.posting_log
+    USING btree
+    (plan_id, batch_id);
+
+CREATE INDEX posting_log_from_account_id_covering_idx
+  ON shm_archive.posting_log
+    USING btree
+    (from_account_id, id) INCLUDE (operation, amount);
+
+CREATE INDEX posting_log_to_account_id_covering_idx
+  ON shm_archive.posting_log
+    USING btree
+    (to_account_id, id) INCLUDE (operation, amount);
+
+CREATE VIEW shm.posting_log_with_archive AS
+SELECT *
+FROM shm.posting_log
+UNION ALL
+SELECT *
+FROM shm_archive.posting_log;
+
+ALTER TABLE shm.posting_log_partition ADD COLUMN archived boolean NOT NULL DEFAULT false;
+
+-- a partition can be archived once every account in it has a checkpoint at or past its last posting there,
+-- then balances are computed from the checkpoint and never read the archived rows,
+-- and once every plan in it is finalized and has no postings past the partition
+CREATE FUNCTION shm.prepare_posting_log_archive(p_name character varying) RETURNS boolean AS
+$$
+DECLARE
+  v_partition shm.posting_log_partition%ROWTYPE;
+  v_behind    boolean;
+  v_open      boolean;
+BEGIN
+  SELECT * INTO v_partition FROM shm.posting_log_partition WHERE name = p_name AND NOT archived;
+  IF NOT FOUND THEN
+    RETURN false;
+  END IF;
+  EXECUTE format('SELECT exists (SELECT 1 FROM shm.plan ' ||
+                 'WHERE id IN (SELECT DISTINCT plan_id FROM shm.%I) AND (status = ''HOLD'' OR clock >= %s))',
+                 p_name, v_partition.to_id) INTO v_open;
+  IF v_open THEN
+    RETURN false;
+  END IF;
+  EXECUTE format('SELECT exists (SELECT 1 FROM (' ||
+                 'SELECT from_account_id AS account_id, max(id) AS clock FROM shm.%1$I GROUP BY from_account_id ' ||
+                 'UNION ALL ' ||
+                 'SELECT to_account_id, max(id) FROM shm.%1$I GROUP BY to_account_id) acc ' ||
+                 'WHERE coalesce((SELECT max(clock) FROM shm.account_log WHERE account_id = acc.account_id), 0) < acc.clock)',
+                 p_name) INTO v_behind;
+  IF v_behind THEN
+    RETURN false;
+  END IF;
+  -- matches the archive bound, so that attaching skips the validation scan
+  IF NOT exists(SELECT 1 FROM pg_constraint WHERE conname = p_name || '_archive_check') THEN
+    PERFORM set_config('lock_timeout', '5s', true);
+    EXECUTE format('ALTER TABLE shm.%I ADD CONSTRAINT %I CHECK (id >= %s AND id < %s) NOT VALID',
+                   p_name, p_name || '_archive_check', v_partition.from_id, v_partition.to_id);
+  END IF;
+  RETURN true;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION shm.validate_posting_log_archive(p_name character varying) RETURNS void AS
+$$
+BEGIN
+  EXECUTE format('ALTER TABLE shm.%I VALIDATE CONSTRAINT %I', p_name, p_name || '_archive_check');
+END
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION shm.archive_posting_log_partition(p_name character varying) RETURNS void AS
+$$
+DECLARE
+  v_partition shm.posting_log_partition%ROWTYPE;
+BEGIN
+  PERFORM set_config('lock_timeout', '5s', true);
+  SELECT * INTO v_partition FROM shm.posting_log_partition WHERE name = p_name AND NOT archived FOR UPDATE;
+  IF NOT FOUND THEN
+    RETURN;
+  END IF;
+  EXECUTE format('ALTER TABLE shm.posting_log DETACH PARTITION shm.%I', p_name);
+  EXECUTE format('ALTER TABLE shm.%I SET SCHEMA shm_archive', p_name);
+  EXECUTE format('ALTER TABLE shm_archive.posting_log ATTACH PARTITION shm_archive.%I FOR VALUES FROM (%s) TO (%s)',
+                 p_name, v_partition.from_id, v_partition.to_id);
+  EXECUTE format('ALTER TABLE shm_archive.%I DROP CONSTRAINT %I', p_name, p_name || '_archive_check');
+  UPDATE shm.posting_log_partition SET archived = true WHERE name = p_name;
+END
+$$ LANGUAGE plpgsql;
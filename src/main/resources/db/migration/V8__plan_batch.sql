@@ -0,0 +1,38 @@
+CREATE TABLE shm.plan_batch
+(
+  plan_id     character varying(64)      NOT NULL,
+  batch_id    bigint                     NOT NULL,
+  operation   shm.posting_operation_type NOT NULL,
+  size        integer                    NOT NULL,
+  fingerprint bytea                      NOT NULL,
+  clock       bigint                     NOT NULL,
+  CONSTRAINT plan_batch_pkey PRIMARY KEY (plan_id, batch_id, operation)
+);
+
+-- must match FingerprintUtils
+CREATE FUNCTION shm.posting_hash(p_amount bigint, p_from_account_id bigint, p_to_account_id bigint,
+                                 p_curr_sym_code character varying, p_description character varying) RETURNS text AS
+$$
+SELECT md5(p_amount || ',' || p_from_account_id || ',' || p_to_account_id || ',' ||
+           coalesce(octet_length(p_curr_sym_code) || ':' || p_curr_sym_code, '-1:') || ',' ||
+           coalesce(octet_length(p_description) || ':' || p_description, '-1:'))
+$$ LANGUAGE sql IMMUTABLE;
+
+CREATE FUNCTION shm.wrap_int8(p_value numeric) RETURNS bigint AS
+$$
+SELECT (CASE WHEN v >= 9223372036854775808 THEN v - 18446744073709551616 ELSE v END)::bigint
+FROM (SELECT mod(mod(p_value, 18446744073709551616) + 18446744073709551616, 18446744073709551616) AS v) t
+$$ LANGUAGE sql IMMUTABLE;
+
+INSERT INTO shm.plan_batch(plan_id, batch_id, operation, size, fingerprint, clock)
+SELECT plan_id,
+       batch_id,
+       operation,
+       count(*),
+       int8send(shm.wrap_int8(sum(('x' || substr(hash, 1, 16))::bit(64)::bigint))) ||
+       int8send(shm.wrap_int8(sum(('x' || substr(hash, 17, 16))::bit(64)::bigint))),
+       max(id)
+FROM (SELECT plan_id, batch_id, operation, id,
+             shm.posting_hash(amount, from_account_id, to_account_id, curr_sym_code, description) AS hash
+      FROM shm.posting_log_with_archive) p
+GROUP BY plan_id, batch_id, operation;
@@ -0,0 +1,18 @@
+CREATE TABLE shm.plan
+(
+  id            character varying(64)      NOT NULL,
+  status        shm.posting_operation_type NOT NULL,
+  max_batch_id  bigint,
+  clock         bigint,
+  posting_count bigint                     NOT NULL,
+  CONSTRAINT plan_pkey PRIMARY KEY (id)
+);
+
+INSERT INTO shm.plan(id, status, max_batch_id, clock, posting_count)
+SELECT plan_id,
+       coalesce(max(operation::text) FILTER (WHERE operation <> 'HOLD'), 'HOLD')::shm.posting_operation_type,
+       max(batch_id),
+       max(clock),
+       sum(size)
+FROM shm.plan_batch
+GROUP BY plan_id;
@@ -0,0 +1,56 @@
+package com.rbkmoney.shumpune.cache;
+
+import com.rbkmoney.shumpune.config.BalanceCacheProperties;
+import com.rbkmoney.shumpune.domain.BalanceModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BalanceCacheTest {
+
+    private static final long ACCOUNT_ID = 1L;
+
+    private BalanceCache balanceCache = new BalanceCache(new BalanceCacheProperties(), new SimpleMeterRegistry());
+
+    @Test
+    public void keepsHighestClock() {
+        balanceCache.put(createBalance(10L, 100L));
+        balanceCache.put(createBalance(5L, 50L));
+
+        BalanceModel balance = balanceCache.get(ACCOUNT_ID);
+        Assert.assertEquals(10L, balance.getClock().longValue());
+        Assert.assertEquals(100L, balance.getOwnAmount().longValue());
+
+        balanceCache.put(createBalance(15L, 150L));
+        Assert.assertEquals(15L, balanceCache.get(ACCOUNT_ID).getClock().longValue());
+    }
+
+    @Test
+    public void returnsCopies() {
+        balanceCache.put(createBalance(10L, 100L));
+        balanceCache.get(ACCOUNT_ID).setOwnAmount(0L);
+
+        Assert.assertEquals(100L, balanceCache.get(ACCOUNT_ID).getOwnAmount().longValue());
+    }
+
+    @Test
+    public void disabled() {
+        BalanceCacheProperties properties = new BalanceCacheProperties();
+        properties.setEnabled(false);
+        BalanceCache disabledCache = new BalanceCache(properties, new SimpleMeterRegistry());
+        disabledCache.put(createBalance(10L, 100L));
+
+        Assert.assertNull(disabledCache.get(ACCOUNT_ID));
+    }
+
+    private BalanceModel createBalance(long clock, long amount) {
+        return BalanceModel.builder()
+                .accountId(ACCOUNT_ID)
+                .ownAmount(amount)
+                .minAvailableAmount(amount)
+                .maxAvailableAmount(amount)
+                .clock(clock)
+                .build();
+    }
+
+}
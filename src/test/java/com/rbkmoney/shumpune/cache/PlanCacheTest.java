@@ -0,0 +1,66 @@
+package com.rbkmoney.shumpune.cache;
+
+import com.rbkmoney.damsel.shumpune.Posting;
+import com.rbkmoney.damsel.shumpune.PostingBatch;
+import com.rbkmoney.damsel.shumpune.PostingPlan;
+import com.rbkmoney.shumpune.config.PlanCacheProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class PlanCacheTest {
+
+    private static final String PLAN_ID = "plan";
+
+    private PlanCache planCache = new PlanCache(new PlanCacheProperties(), new SimpleMeterRegistry());
+
+    @Test
+    public void returnsCopies() {
+        planCache.put(createPlan(2));
+        planCache.get(PLAN_ID).getBatchList().clear();
+
+        Assert.assertEquals(2, planCache.get(PLAN_ID).getBatchList().get(0).getPostingsSize());
+    }
+
+    @Test
+    public void invalidate() {
+        planCache.put(createPlan(2));
+        planCache.invalidate(PLAN_ID);
+
+        Assert.assertNull(planCache.get(PLAN_ID));
+    }
+
+    @Test
+    public void weighsByPostings() {
+        PlanCacheProperties properties = new PlanCacheProperties();
+        properties.setMaximumPostings(2L);
+        PlanCache smallCache = new PlanCache(properties, new SimpleMeterRegistry());
+        smallCache.put(createPlan(3));
+
+        Assert.assertNull(smallCache.get(PLAN_ID));
+    }
+
+    @Test
+    public void disabled() {
+        PlanCacheProperties properties = new PlanCacheProperties();
+        properties.setEnabled(false);
+        PlanCache disabledCache = new PlanCache(properties, new SimpleMeterRegistry());
+        disabledCache.put(createPlan(2));
+
+        Assert.assertNull(disabledCache.get(PLAN_ID));
+    }
+
+    private PostingPlan createPlan(int size) {
+        List<Posting> postings = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            postings.add(new Posting().setFromId(1L).setToId(2L).setAmount(100L).setCurrencySymCode("RUB"));
+        }
+        List<PostingBatch> batches = new ArrayList<>();
+        batches.add(new PostingBatch().setId(1L).setPostings(postings));
+        return new PostingPlan().setId(PLAN_ID).setBatchList(batches);
+    }
+
+}
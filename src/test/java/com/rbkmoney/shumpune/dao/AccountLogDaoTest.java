@@ -0,0 +1,69 @@
+package com.rbkmoney.shumpune.dao;
+
+import com.rbkmoney.shumpune.DaoTestBase;
+import com.rbkmoney.shumpune.ShumpuneApplication;
+import com.rbkmoney.shumpune.domain.BalanceModel;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Slf4j
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ShumpuneApplication.class)
+public class AccountLogDaoTest extends DaoTestBase {
+
+    private static final int ACCOUNTS = 1000;
+    private static final int LOOKUPS = 500;
+
+    @Autowired
+    AccountLogDao accountLogDao;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Test
+    public void lastBalanceLookupIsSingleIndexProbe() {
+        long rows = 0;
+        Map<Long, Long> latencies = new LinkedHashMap<>();
+        for (long size : List.of(10_000L, 100_000L, 1_000_000L)) {
+            fill(rows, size);
+            rows = size;
+            jdbcTemplate.execute("analyze shm.account_log");
+
+            String plan = String.join("\n", namedParameterJdbcTemplate.queryForList(
+                    "explain " + AccountLogDaoImpl.SQL_GET_LAST_BALANCE_BY_ID, new MapSqlParameterSource("accId", 17L), String.class));
+            Assert.assertTrue(plan, plan.contains("account_log_account_id_clock_idx"));
+
+            long start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                long accountId = ThreadLocalRandom.current().nextLong(ACCOUNTS);
+                BalanceModel balance = accountLogDao.getLastBalanceById(accountId);
+                Assert.assertEquals(accountId + (size / ACCOUNTS - 1) * ACCOUNTS, balance.getClock().longValue());
+            }
+            latencies.put(size, (System.nanoTime() - start) / LOOKUPS / 1000);
+        }
+        // stays flat while account_log grows a hundredfold
+        log.info("avg getLastBalanceById us by account_log rows: {}", latencies);
+    }
+
+    private void fill(long from, long to) {
+        jdbcTemplate.update("insert into shm.account_log(account_id, own_amount, max_available_amount, min_available_amount, clock, creation_time) " +
+                "select g % ?, g, g, g, g, now() from generate_series(?, ?) g", ACCOUNTS, from, to - 1);
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.rbkmoney.shumpune.dao;
+
+import com.rbkmoney.damsel.shumpune.Account;
+import com.rbkmoney.damsel.shumpune.AccountPrototype;
+import com.rbkmoney.shumpune.cache.AccountCache;
+import com.rbkmoney.shumpune.config.AccountCacheProperties;
+import com.rbkmoney.shumpune.routing.ReplicaRoutingContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class CachingAccountDaoTest {
+
+    private static final String RUB = "RUB";
+
+    @Mock
+    private AccountDaoImpl accountDaoImpl;
+
+    private MeterRegistry meterRegistry;
+    private AccountCacheProperties properties;
+    private CachingAccountDao accountDao;
+
+    @Before
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new AccountCacheProperties();
+        properties.setNegativeTtlMs(100L);
+        accountDao = new CachingAccountDao(accountDaoImpl, new AccountCache(properties, meterRegistry), properties, meterRegistry);
+    }
+
+    @Test
+    public void readsThroughOnce() {
+        Mockito.when(accountDaoImpl.getAccountById(1L)).thenReturn(Optional.of(createAccount(1L)));
+
+        Assert.assertEquals(createAccount(1L), accountDao.getAccountById(1L).get());
+        accountDao.getAccountById(1L).get().setDescription("changed");
+        Assert.assertEquals(createAccount(1L), accountDao.getAccountById(1L).get());
+
+        Mockito.verify(accountDaoImpl, Mockito.times(1)).getAccountById(1L);
+        Assert.assertEquals(2.0, meterRegistry.get("cache.gets").tag("cache", "account").tag("result", "hit").functionCounter().count(), 0);
+        Assert.assertEquals(1L, meterRegistry.get("cache.account.load").timer().count());
+    }
+
+    @Test
+    public void missingAccountExpires() throws InterruptedException {
+        Mockito.when(accountDaoImpl.getAccountById(1L)).thenReturn(Optional.empty());
+
+        Assert.assertFalse(accountDao.getAccountById(1L).isPresent());
+        Assert.assertFalse(accountDao.getAccountById(1L).isPresent());
+        Mockito.verify(accountDaoImpl, Mockito.times(1)).getAccountById(1L);
+
+        Thread.sleep(150L);
+        Mockito.when(accountDaoImpl.getAccountById(1L)).thenReturn(Optional.of(createAccount(1L)));
+        Assert.assertTrue(accountDao.getAccountById(1L).isPresent());
+    }
+
+    @Test
+    public void replicaMissIsNotRemembered() {
+        Mockito.when(accountDaoImpl.getAccountById(1L)).thenReturn(Optional.empty());
+        try {
+            ReplicaRoutingContext.set("replica");
+            Assert.assertFalse(accountDao.getAccountById(1L).isPresent());
+        } finally {
+            ReplicaRoutingContext.clear();
+        }
+
+        Mockito.when(accountDaoImpl.getAccountById(1L)).thenReturn(Optional.of(createAccount(1L)));
+        Assert.assertTrue(accountDao.getAccountById(1L).isPresent());
+    }
+
+    @Test
+    public void bulkLoadsOnlyMisses() {
+        Mockito.when(accountDaoImpl.getAccountById(1L)).thenReturn(Optional.of(createAccount(1L)));
+        Mockito.when(accountDaoImpl.getAccountsByIds(List.of(2L, 3L))).thenReturn(Map.of(2L, createAccount(2L)));
+        accountDao.getAccountById(1L);
+
+        Map<Long, Account> accounts = accountDao.getAccountsByIds(List.of(1L, 2L, 3L));
+        Assert.assertEquals(Map.of(1L, createAccount(1L), 2L, createAccount(2L)), accounts);
+
+        Assert.assertEquals(Map.of(1L, createAccount(1L), 2L, createAccount(2L)), accountDao.getAccountsByIds(List.of(1L, 2L, 3L)));
+        Mockito.verify(accountDaoImpl, Mockito.times(1)).getAccountsByIds(Mockito.anyCollection());
+    }
+
+    @Test
+    public void insertPopulatesCache() {
+        AccountPrototype prototype = new AccountPrototype().setCurrencySymCode(RUB);
+        Mockito.when(accountDaoImpl.insert(prototype)).thenReturn(1L);
+        Mockito.when(accountDaoImpl.getAccountById(1L)).thenReturn(Optional.of(createAccount(1L)));
+
+        Assert.assertEquals(1L, accountDao.insert(prototype).longValue());
+        accountDao.getAccountById(1L);
+        accountDao.getAccountById(1L);
+
+        Mockito.verify(accountDaoImpl, Mockito.times(1)).getAccountById(1L);
+    }
+
+    @Test
+    public void disabled() {
+        properties.setEnabled(false);
+        accountDao = new CachingAccountDao(accountDaoImpl, new AccountCache(properties, meterRegistry), properties, meterRegistry);
+        Mockito.when(accountDaoImpl.getAccountById(1L)).thenReturn(Optional.of(createAccount(1L)));
+
+        accountDao.getAccountById(1L);
+        accountDao.getAccountById(1L);
+
+        Mockito.verify(accountDaoImpl, Mockito.times(2)).getAccountById(1L);
+    }
+
+    private Account createAccount(long id) {
+        return new Account()
+                .setId(id)
+                .setCurrencySymCode(RUB)
+                .setCreationTime("2019-01-01T00:00:00Z");
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.rbkmoney.shumpune.dao;
+
+import com.rbkmoney.damsel.shumpune.AccountPrototype;
+import com.rbkmoney.damsel.shumpune.PostingPlan;
+import com.rbkmoney.damsel.shumpune.PostingPlanChange;
+import com.rbkmoney.shumpune.DaoTestBase;
+import com.rbkmoney.shumpune.ShumpuneApplication;
+import com.rbkmoney.shumpune.constant.PostingOperation;
+import com.rbkmoney.shumpune.domain.PlanBatchModel;
+import com.rbkmoney.shumpune.handler.ShumpuneServiceHandler;
+import com.rbkmoney.shumpune.utils.AccountGenerator;
+import com.rbkmoney.shumpune.utils.PostingGenerator;
+import org.apache.thrift.TException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ShumpuneApplication.class)
+public class PlanBatchDaoTest extends DaoTestBase {
+
+    @Autowired
+    ShumpuneServiceHandler handler;
+
+    @Autowired
+    PlanBatchDao planBatchDao;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void fingerprintMatchesDatabaseHash() throws TException {
+        AccountPrototype accountPrototype = AccountGenerator.createAccountPrototype(Instant.now());
+        long providerAcc = handler.createAccount(accountPrototype);
+        long systemAcc = handler.createAccount(accountPrototype);
+        long merchantAcc = handler.createAccount(accountPrototype);
+
+        PostingPlanChange postingPlanChange = PostingGenerator.createPostingPlanChange("fingerprint", providerAcc, systemAcc, merchantAcc);
+        postingPlanChange.getBatch().getPostings().get(0).setDescription("оплата, 1:2 😀");
+        postingPlanChange.getBatch().getPostings().get(1).setDescription(null);
+        handler.hold(postingPlanChange);
+        handler.commitPlan(new PostingPlan(postingPlanChange.getId(), List.of(postingPlanChange.getBatch())));
+
+        Map<PostingOperation, PlanBatchModel> batches = planBatchDao.getBatches(postingPlanChange.getId()).stream()
+                .collect(Collectors.toMap(PlanBatchModel::getOperation, batch -> batch));
+        Assert.assertEquals(2, batches.size());
+
+        for (PlanBatchModel batch : batches.values()) {
+            byte[] expected = jdbcTemplate.queryForObject("select " +
+                    "int8send(shm.wrap_int8(sum(('x' || substr(hash, 1, 16))::bit(64)::bigint))) || " +
+                    "int8send(shm.wrap_int8(sum(('x' || substr(hash, 17, 16))::bit(64)::bigint))) " +
+                    "from (select shm.posting_hash(amount, from_account_id, to_account_id, curr_sym_code, description) as hash " +
+                    "      from shm.posting_log where plan_id = ? and operation = ?::shm.posting_operation_type) p",
+                    byte[].class, batch.getPlanId(), batch.getOperation().name());
+            Assert.assertArrayEquals(expected, batch.getFingerprint());
+            Assert.assertEquals(3, batch.getSize().intValue());
+        }
+        Assert.assertTrue(batches.get(PostingOperation.COMMIT).getClock() > batches.get(PostingOperation.HOLD).getClock());
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.rbkmoney.shumpune.dao;
+
+import com.rbkmoney.shumpune.DaoTestBase;
+import com.rbkmoney.shumpune.ShumpuneApplication;
+import com.rbkmoney.shumpune.constant.PostingOperation;
+import com.rbkmoney.shumpune.domain.PostingColumns;
+import com.rbkmoney.shumpune.domain.PostingModel;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Slf4j
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ShumpuneApplication.class)
+public class PlanDaoTest extends DaoTestBase {
+
+    @Autowired
+    PlanDaoImpl planDao;
+
+    @Test
+    public void copyInsertMatchesBatchInsert() {
+        Instant creationTime = Instant.now();
+        for (int size : List.of(10, 1_000, 20_000)) {
+            insert("batch_" + size, size, creationTime, planDao::insertPostingsWithBatch);
+            insert("copy_" + size, size, creationTime, planDao::insertPostingsWithCopy);
+
+            List<PostingModel> batchPostings = sorted(planDao.getPostingModelsPlanById("batch_" + size));
+            List<PostingModel> copyPostings = sorted(planDao.getPostingModelsPlanById("copy_" + size));
+            batchPostings.forEach(posting -> posting.setId(null));
+            copyPostings.forEach(posting -> {
+                posting.setId(null);
+                posting.setPlanId("batch_" + size);
+            });
+            Assert.assertEquals(batchPostings, copyPostings);
+        }
+    }
+
+    @Test
+    public void postingColumnsMatchPostingModels() {
+        List<PostingModel> inserted = IntStream.range(0, 1_000)
+                .mapToObj(i -> PostingModel.builder()
+                        .planId("columns")
+                        .batchId((long) i / 100)
+                        .accountFromId((long) i)
+                        .accountToId((long) i + 1)
+                        .amount((long) i)
+                        .currencySymbCode(i % 2 == 0 ? "RUB" : "USD")
+                        .description(i % 3 == 0 ? null : "columns " + i)
+                        .creationTime(Instant.now())
+                        .operation(PostingOperation.values()[i % 3])
+                        .build())
+                .collect(Collectors.toList());
+        planDao.insertPostingsWithBatch(inserted);
+
+        List<PostingModel> postings = sorted(planDao.getPostingModelsPlanById("columns"));
+        PostingColumns columns = planDao.getPostingColumnsByPlanId("columns");
+        Assert.assertEquals(postings.size(), columns.size());
+        Assert.assertTrue(columns.hasFinalOperation());
+        for (int i = 0; i < columns.size(); i++) {
+            PostingModel posting = postings.get((int) columns.getAmount(i));
+            Assert.assertEquals(posting.getBatchId().longValue(), columns.getBatchId(i));
+            Assert.assertEquals(posting.getAccountFromId().longValue(), columns.getFromId(i));
+            Assert.assertEquals(posting.getAccountToId().longValue(), columns.getToId(i));
+            Assert.assertEquals(posting.getCurrencySymbCode(), columns.getCurrencySymCode(i));
+            Assert.assertEquals(posting.getDescription(), columns.getDescription(i));
+            Assert.assertEquals(posting.getOperation(), columns.getOperation(i));
+        }
+        Assert.assertTrue(planDao.getPostingColumnsByPlanId("columns_unknown").isEmpty());
+    }
+
+    private List<PostingModel> sorted(List<PostingModel> postings) {
+        return postings.stream().sorted(Comparator.comparing(PostingModel::getAmount)).collect(Collectors.toList());
+    }
+
+    private void insert(String planId, int size, Instant creationTime, Function<List<PostingModel>, Map<Long, Long>> insert) {
+        List<PostingModel> postings = IntStream.range(0, size)
+                .mapToObj(i -> PostingModel.builder()
+                        .planId(planId)
+                        .batchId((long) i % 3)
+                        .accountFromId((long) i % 100)
+                        .accountToId((long) i % 100 + 1)
+                        .amount((long) i)
+                        .currencySymbCode("RUB")
+                        .description(i % 3 == 0 ? null : "payout \"" + i + "\",\n" + "line")
+                        .creationTime(creationTime.plusNanos(i * 1001L))
+                        .operation(PostingOperation.HOLD)
+                        .build())
+                .collect(Collectors.toList());
+        long start = System.nanoTime();
+        Map<Long, Long> batchClocks = insert.apply(postings);
+        log.info("plan: {} postings: {} insert took: {} ms", planId, size, (System.nanoTime() - start) / 1_000_000);
+
+        Map<Long, Long> stored = planDao.getPostingModelsPlanById(planId).stream()
+                .collect(Collectors.toMap(PostingModel::getBatchId, PostingModel::getId, Math::max));
+        Assert.assertEquals(stored, batchClocks);
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.rbkmoney.shumpune.dao;
+
+import com.rbkmoney.damsel.shumpune.AccountPrototype;
+import com.rbkmoney.damsel.shumpune.Clock;
+import com.rbkmoney.damsel.shumpune.PostingPlan;
+import com.rbkmoney.damsel.shumpune.PostingPlanChange;
+import com.rbkmoney.shumpune.DaoTestBase;
+import com.rbkmoney.shumpune.ShumpuneApplication;
+import com.rbkmoney.shumpune.constant.PostingOperation;
+import com.rbkmoney.shumpune.domain.PlanModel;
+import com.rbkmoney.shumpune.handler.ShumpuneServiceHandler;
+import com.rbkmoney.shumpune.utils.AccountGenerator;
+import com.rbkmoney.shumpune.utils.PostingGenerator;
+import com.rbkmoney.shumpune.utils.VectorClockSerializer;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ShumpuneApplication.class)
+public class PlanModelDaoTest extends DaoTestBase {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    ShumpuneServiceHandler handler;
+
+    @Autowired
+    PlanModelDao planModelDao;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void headerFollowsPlan() throws Exception {
+        AccountPrototype accountPrototype = AccountGenerator.createAccountPrototype(Instant.now());
+        long providerAcc = handler.createAccount(accountPrototype);
+        long systemAcc = handler.createAccount(accountPrototype);
+        long merchantAcc = handler.createAccount(accountPrototype);
+        PostingPlanChange postingPlanChange = PostingGenerator.createPostingPlanChange("header", providerAcc, systemAcc, merchantAcc);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Clock>> holds = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            holds.add(executor.submit((Callable<Clock>) () -> handler.hold(postingPlanChange)));
+        }
+        Set<Long> holdClocks = new HashSet<>();
+        for (Future<Clock> hold : holds) {
+            holdClocks.add(VectorClockSerializer.deserialize(hold.get().getVector()));
+        }
+        executor.shutdown();
+        Assert.assertEquals(1, holdClocks.size());
+        Assert.assertEquals(3, jdbcTemplate.queryForObject("select count(*) from shm.posting_log where plan_id = 'header'", Integer.class).intValue());
+
+        PlanModel held = getPlan();
+        Assert.assertEquals(PostingOperation.HOLD, held.getStatus());
+        Assert.assertEquals(PostingGenerator.BATCH_ID, held.getMaxBatchId().longValue());
+        Assert.assertEquals(holdClocks.iterator().next(), held.getClock());
+        Assert.assertEquals(3L, held.getPostingCount().longValue());
+
+        Clock commitClock = handler.commitPlan(new PostingPlan(postingPlanChange.getId(), List.of(postingPlanChange.getBatch())));
+        PlanModel committed = getPlan();
+        Assert.assertEquals(PostingOperation.COMMIT, committed.getStatus());
+        Assert.assertEquals(VectorClockSerializer.deserialize(commitClock.getVector()), committed.getClock().longValue());
+        Assert.assertEquals(6L, committed.getPostingCount().longValue());
+
+        Assert.assertEquals(commitClock, handler.commitPlan(new PostingPlan(postingPlanChange.getId(), List.of(postingPlanChange.getBatch()))));
+        Assert.assertEquals(6L, getPlan().getPostingCount().longValue());
+    }
+
+    @Test
+    public void lockForUpdateLocksExistingHeaders() throws Exception {
+        jdbcTemplate.update("insert into shm.plan(id, status, posting_count) values ('lock_a', 'HOLD', 0), ('lock_b', 'HOLD', 0)");
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        transactionTemplate.execute(status -> {
+            planModelDao.lockForUpdate(List.of("lock_b", "lock_a", "lock_missing"));
+            for (String planId : List.of("lock_a", "lock_b")) {
+                Future<?> concurrent = executor.submit(() -> transactionTemplate.execute(inner ->
+                        jdbcTemplate.queryForList("select id from shm.plan where id = ? for update nowait", String.class, planId)));
+                try {
+                    concurrent.get();
+                    Assert.fail();
+                } catch (Exception e) {
+                    Assert.assertTrue(e.getMessage().contains("could not obtain lock"));
+                }
+            }
+            return null;
+        });
+        executor.shutdown();
+    }
+
+    private PlanModel getPlan() {
+        return transactionTemplate.execute(status -> planModelDao.getForUpdate("header"));
+    }
+
+}
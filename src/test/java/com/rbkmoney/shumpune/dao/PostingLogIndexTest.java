@@ -0,0 +1,66 @@
+package com.rbkmoney.shumpune.dao;
+
+import com.rbkmoney.shumpune.DaoTestBase;
+import com.rbkmoney.shumpune.ShumpuneApplication;
+import com.rbkmoney.shumpune.domain.BalanceModel;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Map;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ShumpuneApplication.class)
+public class PostingLogIndexTest extends DaoTestBase {
+
+    private static final int ACCOUNTS = 1000;
+    private static final int POSTINGS = 200_000;
+
+    @Autowired
+    PlanDao planDao;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void accountQueriesAreIndexOnlyScans() {
+        jdbcTemplate.update("insert into shm.posting_log(plan_id, batch_id, from_account_id, to_account_id, operation, " +
+                "amount, creation_time, curr_sym_code) " +
+                "select 'plan_' || g / 10, 1, g % ?, (g + 1) % ?, " +
+                "(array['HOLD', 'COMMIT', 'ROLLBACK'])[g % 3 + 1]::shm.posting_operation_type, g % 100, now(), 'RUB' " +
+                "from generate_series(1, ?) g", ACCOUNTS, ACCOUNTS, POSTINGS);
+        jdbcTemplate.execute("vacuum analyze shm.posting_log");
+
+        assertIndexOnly(PlanDaoImpl.SQL_GET_SUMS_BY_ACC
+                .replace(":acc_id", "17")
+                .replace(":fromClock", "1000")
+                .replace(":toClock", "150000"));
+        assertIndexOnly(PlanDaoImpl.SQL_GET_MAX_CLOCK_BY_ACC.replace(":accId", "17"));
+
+        long clock = planDao.getMaxClock();
+        for (long accountId : new long[]{0, 17, ACCOUNTS - 1}) {
+            Map<String, Object> expected = jdbcTemplate.queryForMap("select " +
+                    "coalesce(sum(amount) filter (where to_account_id = ? and operation = 'COMMIT'), 0) - " +
+                    "coalesce(sum(amount) filter (where from_account_id = ? and operation = 'COMMIT'), 0) as own, " +
+                    "max(id) as clock " +
+                    "from shm.posting_log where from_account_id = ? or to_account_id = ?", accountId, accountId, accountId, accountId);
+            BalanceModel balance = planDao.getBalance(accountId, 0L, clock);
+            Assert.assertEquals(((Number) expected.get("own")).longValue(), balance.getOwnAmount().longValue());
+            Assert.assertEquals(((Number) expected.get("clock")).longValue(), planDao.getMaxClockByAccountId(accountId));
+        }
+        Assert.assertEquals(0L, planDao.getMaxClockByAccountId((long) ACCOUNTS + 1));
+    }
+
+    private void assertIndexOnly(String sql) {
+        String plan = String.join("\n", jdbcTemplate.queryForList("explain " + sql, String.class));
+        Assert.assertTrue(plan, plan.contains("Index Only Scan"));
+        Assert.assertFalse(plan, plan.contains("Seq Scan"));
+        Assert.assertFalse(plan, plan.contains("Heap Scan"));
+        Assert.assertFalse(plan, plan.matches("(?s).*Index Scan using .*"));
+    }
+
+}
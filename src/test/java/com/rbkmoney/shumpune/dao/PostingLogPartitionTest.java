@@ -0,0 +1,128 @@
+package com.rbkmoney.shumpune.dao;
+
+import com.rbkmoney.shumpune.DaoTestBase;
+import com.rbkmoney.shumpune.ShumpuneApplication;
+import com.rbkmoney.shumpune.constant.PostingOperation;
+import com.rbkmoney.shumpune.domain.BalanceModel;
+import com.rbkmoney.shumpune.domain.PostingModel;
+import com.rbkmoney.shumpune.service.PostingLogPartitionService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Slf4j
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ShumpuneApplication.class, properties = {
+        "posting-log.partition.enabled=false",
+        "posting-log.partition.size=1000",
+        "posting-log.partition.ahead=30"})
+public class PostingLogPartitionTest extends DaoTestBase {
+
+    private static final int PLANS = 25;
+    private static final int POSTINGS_PER_PLAN = 1000;
+    private static final long ACCOUNT_ID = 7L;
+    private static final int EXTRA_PARTITIONS = 200;
+    private static final int LOOKUPS = 20;
+    private static final Pattern PARTITION_SCAN = Pattern.compile("Scan (?:using \\S+ )?on (posting_log_(?:legacy|\\d+))\\s");
+
+    @Autowired
+    PlanDao planDao;
+
+    @Autowired
+    PostingLogPartitionService postingLogPartitionService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void balanceQueryScansOnlyPartitionsOfClockWindow() {
+        Long lastBound = jdbcTemplate.queryForObject("select max(to_id) from shm.posting_log_partition", Long.class);
+        jdbcTemplate.queryForObject("select setval('shm.posting_log_id_seq', ?)", Long.class, lastBound);
+        Assert.assertEquals(31, postingLogPartitionService.createPartitions());
+        Assert.assertEquals(0, postingLogPartitionService.createPartitions());
+
+        Instant creationTime = Instant.now();
+        long clock = 0;
+        for (int plan = 0; plan < PLANS; plan++) {
+            clock = Collections.max(planDao.insertPostings(postings("plan_" + plan, creationTime)).values());
+        }
+        jdbcTemplate.execute("analyze shm.posting_log");
+
+        Integer partitions = jdbcTemplate.queryForObject("select count(*) from pg_inherits " +
+                "where inhparent = 'shm.posting_log'::regclass", Integer.class);
+        Assert.assertTrue(partitions > PLANS);
+
+        long fromClock = clock - 500;
+        String plan = String.join("\n", jdbcTemplate.queryForList("explain " + PlanDaoImpl.SQL_GET_SUMS_BY_ACC
+                .replace(":acc_id", String.valueOf(ACCOUNT_ID))
+                .replace(":fromClock", String.valueOf(fromClock))
+                .replace(":toClock", String.valueOf(clock)), String.class));
+        Matcher matcher = PARTITION_SCAN.matcher(plan);
+        Set<String> scanned = new HashSet<>();
+        while (matcher.find()) {
+            scanned.add(matcher.group(1));
+        }
+        Assert.assertTrue(plan, !scanned.isEmpty() && scanned.size() <= 2);
+
+        long start = System.nanoTime();
+        BalanceModel window = planDao.getBalance(ACCOUNT_ID, fromClock, clock);
+        log.info("balance over {} partitions took: {} us", partitions, (System.nanoTime() - start) / 1000);
+        Assert.assertEquals(-5 * ACCOUNT_ID, window.getMinAvailableAmount().longValue());
+        Assert.assertEquals(5 * (ACCOUNT_ID - 1), window.getMaxAvailableAmount().longValue());
+
+        BalanceModel total = planDao.getBalance(ACCOUNT_ID, 0L, clock);
+        Assert.assertEquals(-PLANS * 10 * ACCOUNT_ID, total.getMinAvailableAmount().longValue());
+        Assert.assertEquals(PLANS * 10 * (ACCOUNT_ID - 1), total.getMaxAvailableAmount().longValue());
+
+        String planId = "plan_" + (PLANS / 2);
+        Map<Integer, Long> latencies = new LinkedHashMap<>();
+        latencies.put(partitions, planLookupMicros(planId));
+        jdbcTemplate.queryForObject("select shm.create_posting_log_partitions(1000, ?)", Integer.class, EXTRA_PARTITIONS);
+        Integer grown = jdbcTemplate.queryForObject("select count(*) from pg_inherits " +
+                "where inhparent = 'shm.posting_log'::regclass", Integer.class);
+        Assert.assertTrue(grown > partitions);
+        latencies.put(grown, planLookupMicros(planId));
+        log.info("plan lookup us by partition count: {}", latencies);
+    }
+
+    private long planLookupMicros(String planId) {
+        long start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            Assert.assertEquals(POSTINGS_PER_PLAN, planDao.getPostingModelsPlanById(planId).size());
+        }
+        return (System.nanoTime() - start) / 1000 / LOOKUPS;
+    }
+
+    private List<PostingModel> postings(String planId, Instant creationTime) {
+        return IntStream.range(0, POSTINGS_PER_PLAN)
+                .mapToObj(i -> PostingModel.builder()
+                        .planId(planId)
+                        .batchId(1L)
+                        .accountFromId((long) i % 100)
+                        .accountToId((long) i % 100 + 1)
+                        .amount((long) i % 100)
+                        .currencySymbCode("RUB")
+                        .creationTime(creationTime)
+                        .operation(PostingOperation.HOLD)
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+}
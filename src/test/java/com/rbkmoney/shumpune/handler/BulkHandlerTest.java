@@ -0,0 +1,76 @@
+package com.rbkmoney.shumpune.handler;
+
+import com.google.common.primitives.Longs;
+import com.rbkmoney.damsel.shumpune.*;
+import com.rbkmoney.shumpune.DaoTestBase;
+import com.rbkmoney.shumpune.ShumpuneApplication;
+import com.rbkmoney.shumpune.domain.BulkAccount;
+import com.rbkmoney.shumpune.domain.BulkBalance;
+import com.rbkmoney.shumpune.domain.BulkRequest;
+import com.rbkmoney.shumpune.utils.AccountGenerator;
+import com.rbkmoney.shumpune.utils.PostingGenerator;
+import com.rbkmoney.shumpune.utils.VectorClockSerializer;
+import org.apache.thrift.TException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ShumpuneApplication.class, properties = "bulk.max-batch-size=10")
+public class BulkHandlerTest extends DaoTestBase {
+
+    @Autowired
+    ShumpuneServiceHandler handler;
+
+    @Autowired
+    BulkHandler bulkHandler;
+
+    @Test
+    public void bulkBalancesMatchSingleReads() throws TException {
+        AccountPrototype accountPrototype = AccountGenerator.createAccountPrototype(Instant.now());
+        long firstAcc = handler.createAccount(accountPrototype);
+        long secondAcc = handler.createAccount(accountPrototype);
+        long thirdAcc = handler.createAccount(accountPrototype);
+        long fourthAcc = handler.createAccount(accountPrototype);
+        List<Long> accounts = List.of(firstAcc, secondAcc, thirdAcc, fourthAcc, 987654L);
+
+        PostingPlanChange plan = PostingGenerator.createPostingPlanChange("bulk_1", firstAcc, secondAcc, thirdAcc, fourthAcc, 2);
+        handler.hold(plan);
+        handler.getBalanceByID(firstAcc, Clock.latest(new LatestClock()));
+        Clock clock = handler.commitPlan(new PostingPlan(plan.getId(), List.of(plan.getBatch())));
+
+        List<BulkBalance> balances = bulkHandler.getBalances(new BulkRequest(accounts, null));
+        Assert.assertEquals(accounts.size(), balances.size());
+        for (int i = 0; i < accounts.size(); i++) {
+            BulkBalance bulkBalance = balances.get(i);
+            Balance balance = handler.getBalanceByID(accounts.get(i), clock);
+            Assert.assertEquals(balance.getId(), bulkBalance.getId().longValue());
+            Assert.assertEquals(balance.getOwnAmount(), bulkBalance.getOwnAmount().longValue());
+            Assert.assertEquals(balance.getMinAvailableAmount(), bulkBalance.getMinAvailableAmount().longValue());
+            Assert.assertEquals(balance.getMaxAvailableAmount(), bulkBalance.getMaxAvailableAmount().longValue());
+        }
+
+        List<BulkBalance> byVector = bulkHandler.getBalances(
+                new BulkRequest(accounts, Longs.toByteArray(VectorClockSerializer.deserialize(clock.getVector()))));
+        Assert.assertEquals(balances, byVector);
+
+        List<BulkAccount> bulkAccounts = bulkHandler.getAccounts(new BulkRequest(accounts, null));
+        Assert.assertEquals(4, bulkAccounts.size());
+        Assert.assertEquals(handler.getAccountByID(secondAcc).getCurrencySymCode(), bulkAccounts.get(1).getCurrencySymCode());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void batchSizeIsLimited() throws TException {
+        List<Long> accounts = LongStream.rangeClosed(1, 11).boxed().collect(Collectors.toList());
+        bulkHandler.getBalances(new BulkRequest(accounts, null));
+    }
+
+}
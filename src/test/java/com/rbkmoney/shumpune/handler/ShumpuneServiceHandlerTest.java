@@ -88,6 +88,31 @@ public class ShumpuneServiceHandlerTest extends DaoTestBase {
         handler.hold(postingPlanChange);
     }
 
+    @Test
+    public void holdLowerBatchId() throws TException {
+        Instant now = Instant.now();
+
+        AccountPrototype accountPrototype = AccountGenerator.createAccountPrototype(now);
+        long providerAcc = handler.createAccount(accountPrototype);
+        long merchantAcc = handler.createAccount(accountPrototype);
+        long systemAcc = handler.createAccount(accountPrototype);
+
+        String planHold = "plan_hold_lower_batch";
+        PostingPlanChange postingPlanChange = PostingGenerator.createPostingPlanChange(planHold, providerAcc, systemAcc, merchantAcc);
+        postingPlanChange.getBatch().setId(3L);
+        Clock clock = handler.hold(postingPlanChange);
+
+        //retry of the last batch is still a duplicate
+        Assert.assertEquals(clock, handler.hold(postingPlanChange));
+
+        //a batch below the saved one is still new
+        postingPlanChange.getBatch().setId(2L);
+        Clock lowerClock = handler.hold(postingPlanChange);
+        Assert.assertNotEquals(clock, lowerClock);
+        Assert.assertEquals(lowerClock, handler.hold(postingPlanChange));
+        Assert.assertEquals(2, handler.getPlan(planHold).getBatchListSize());
+    }
+
     @Test(expected = TException.class)
     public void commitInvalidRequest() throws TException {
         Instant now = Instant.now();
@@ -129,7 +154,7 @@ public class ShumpuneServiceHandlerTest extends DaoTestBase {
         String planHold = "plan_hold_double";
         PostingPlanChange postingPlanChange = PostingGenerator.createPostingPlanChange(planHold, providerAcc, systemAcc, merchantAcc);
 
-        handler.hold(postingPlanChange);
+        Clock clock = handler.hold(postingPlanChange);
 
         PostingPlan plan = handler.getPlan(planHold);
         plan.getBatchList()
@@ -138,7 +163,7 @@ public class ShumpuneServiceHandlerTest extends DaoTestBase {
                     Assert.assertEquals(3L, postingBatch.getPostings().size());
                 });
 
-        handler.hold(postingPlanChange);
+        Assert.assertEquals(clock, handler.hold(postingPlanChange));
 
         plan = handler.getPlan(planHold);
         plan.getBatchList()
@@ -238,7 +263,7 @@ public class ShumpuneServiceHandlerTest extends DaoTestBase {
                 .setId(planCommit)
                 .setBatchList(batchList);
 
-        handler.commitPlan(postingPlan);
+        Clock clock = handler.commitPlan(postingPlan);
 
         PostingPlan plan = handler.getPlan(planCommit);
         plan.getBatchList()
@@ -247,7 +272,7 @@ public class ShumpuneServiceHandlerTest extends DaoTestBase {
                     Assert.assertEquals(6L, postingBatch.getPostings().size());
                 });
 
-        handler.commitPlan(postingPlan);
+        Assert.assertEquals(clock, handler.commitPlan(postingPlan));
 
         plan = handler.getPlan(planCommit);
         plan.getBatchList()
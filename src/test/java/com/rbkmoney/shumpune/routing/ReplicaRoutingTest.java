@@ -0,0 +1,78 @@
+package com.rbkmoney.shumpune.routing;
+
+import com.rbkmoney.damsel.shumpune.*;
+import com.rbkmoney.shumpune.DaoTestBase;
+import com.rbkmoney.shumpune.ShumpuneApplication;
+import com.rbkmoney.shumpune.handler.ShumpuneServiceHandler;
+import com.rbkmoney.shumpune.utils.AccountGenerator;
+import com.rbkmoney.shumpune.utils.PostingGenerator;
+import com.rbkmoney.shumpune.utils.VectorClockSerializer;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.thrift.TException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Instant;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ShumpuneApplication.class, properties = {
+        "replica.enabled=true",
+        "replica.poll-interval-ms=3600000",
+        "replica.datasources[0].name=replica",
+        "replica.datasources[0].url=${spring.datasource.url}",
+        "replica.datasources[0].username=${spring.datasource.username}",
+        "replica.datasources[0].password=${spring.datasource.password}"})
+public class ReplicaRoutingTest extends DaoTestBase {
+
+    @Autowired
+    ShumpuneServiceHandler handler;
+
+    @Autowired
+    ReplicaSelector replicaSelector;
+
+    @Autowired
+    ReplicaRoutingDataSource dataSource;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    public void readsGoToReplicaThatReachedClock() throws TException {
+        AccountPrototype accountPrototype = AccountGenerator.createAccountPrototype(Instant.now());
+        long providerAcc = handler.createAccount(accountPrototype);
+        long merchantAcc = handler.createAccount(accountPrototype);
+        long systemAcc = handler.createAccount(accountPrototype);
+
+        PostingPlanChange postingPlanChange = PostingGenerator.createPostingPlanChange("replica_plan", providerAcc, systemAcc, merchantAcc);
+        Clock clock = handler.hold(postingPlanChange);
+        long clockValue = VectorClockSerializer.deserialize(clock.getVector());
+
+        replicaSelector.refresh();
+        Assert.assertEquals("replica", replicaSelector.selectReplica(clockValue));
+        Assert.assertNull(replicaSelector.selectReplica(clockValue + 1000));
+
+        double replicaReads = meterRegistry.counter("replica.route", "target", "replica").count();
+        Balance balance = handler.getBalanceByID(merchantAcc, clock);
+        Assert.assertEquals(merchantAcc, balance.getId());
+        Assert.assertEquals(providerAcc, handler.getAccountByID(providerAcc).getId());
+        Assert.assertEquals(1, handler.getPlan(postingPlanChange.getId()).getBatchListSize());
+        Assert.assertEquals(replicaReads + 3, meterRegistry.counter("replica.route", "target", "replica").count(), 0.0);
+
+        // held after the last poll, so no replica is known to have it yet
+        PostingPlanChange unreplicated = PostingGenerator.createPostingPlanChange("replica_plan_new", providerAcc, systemAcc, merchantAcc);
+        handler.hold(unreplicated);
+        double primaryReads = meterRegistry.counter("replica.route", "target", "primary").count();
+        Assert.assertEquals(1, handler.getPlan(unreplicated.getId()).getBatchListSize());
+        Assert.assertEquals(primaryReads + 1, meterRegistry.counter("replica.route", "target", "primary").count(), 0.0);
+
+        HikariDataSource replica = (HikariDataSource) dataSource.getReplicas().get("replica");
+        Assert.assertTrue(replica.isReadOnly());
+        Assert.assertTrue(replica.getHikariPoolMXBean().getTotalConnections() > 0);
+    }
+
+}
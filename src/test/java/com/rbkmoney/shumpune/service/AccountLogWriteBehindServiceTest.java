@@ -0,0 +1,110 @@
+package com.rbkmoney.shumpune.service;
+
+import com.rbkmoney.shumpune.config.AccountLogWriteBehindProperties;
+import com.rbkmoney.shumpune.dao.AccountLogDao;
+import com.rbkmoney.shumpune.domain.BalanceModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class AccountLogWriteBehindServiceTest {
+
+    @Mock
+    private AccountLogDao accountLogDao;
+
+    private AccountLogWriteBehindProperties properties;
+
+    private AccountLogWriteBehindService writeBehindService;
+
+    @Before
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+        properties = new AccountLogWriteBehindProperties();
+        properties.setEnabled(true);
+        properties.setMaxPending(2);
+        writeBehindService = new AccountLogWriteBehindService(accountLogDao, properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void coalescesByAccountKeepingHighestClock() {
+        writeBehindService.submit(createBalance(1L, 10L));
+        writeBehindService.submit(createBalance(1L, 30L));
+        writeBehindService.submit(createBalance(1L, 20L));
+        writeBehindService.flush();
+
+        ArgumentCaptor<List<BalanceModel>> captor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(accountLogDao).insertBatch(captor.capture());
+        Assert.assertEquals(1, captor.getValue().size());
+        Assert.assertEquals(30L, captor.getValue().get(0).getClock().longValue());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void dropsNewAccountsWhenFull() {
+        writeBehindService.submit(createBalance(1L, 10L));
+        writeBehindService.submit(createBalance(2L, 10L));
+        writeBehindService.submit(createBalance(3L, 10L));
+        writeBehindService.submit(createBalance(2L, 20L));
+        writeBehindService.flush();
+
+        ArgumentCaptor<List<BalanceModel>> captor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(accountLogDao).insertBatch(captor.capture());
+        Assert.assertEquals(2, captor.getValue().size());
+        Assert.assertTrue(captor.getValue().stream().noneMatch(balance -> balance.getAccountId() == 3L));
+        Assert.assertTrue(captor.getValue().stream().anyMatch(balance -> balance.getClock() == 20L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void concurrentSubmitsDoNotOvershootMaxPending() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> submits = new ArrayList<>();
+        for (long accountId = 0; accountId < 1000; accountId++) {
+            BalanceModel balance = createBalance(accountId, 10L);
+            submits.add(executor.submit(() -> writeBehindService.submit(balance)));
+        }
+        for (Future<?> submit : submits) {
+            submit.get();
+        }
+        executor.shutdown();
+        writeBehindService.flush();
+
+        ArgumentCaptor<List<BalanceModel>> captor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(accountLogDao).insertBatch(captor.capture());
+        Assert.assertEquals(2, captor.getValue().size());
+    }
+
+    @Test
+    public void writesSynchronouslyWhenDisabled() {
+        properties.setEnabled(false);
+        BalanceModel balance = createBalance(1L, 10L);
+        writeBehindService.submit(balance);
+
+        Mockito.verify(accountLogDao).insert(balance);
+        writeBehindService.flush();
+        Mockito.verify(accountLogDao, Mockito.never()).insertBatch(Mockito.anyList());
+    }
+
+    private BalanceModel createBalance(long accountId, long clock) {
+        return BalanceModel.builder()
+                .accountId(accountId)
+                .ownAmount(0L)
+                .minAvailableAmount(0L)
+                .maxAvailableAmount(0L)
+                .clock(clock)
+                .build();
+    }
+
+}
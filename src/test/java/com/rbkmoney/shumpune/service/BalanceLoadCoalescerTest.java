@@ -0,0 +1,111 @@
+package com.rbkmoney.shumpune.service;
+
+import com.rbkmoney.shumpune.config.BalanceCoalescingProperties;
+import com.rbkmoney.shumpune.domain.BalanceModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BalanceLoadCoalescerTest {
+
+    private static final long ACCOUNT_ID = 1L;
+    private static final int REQUESTS = 10;
+
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BalanceLoadCoalescer coalescer = new BalanceLoadCoalescer(new BalanceCoalescingProperties(), meterRegistry);
+
+    @Test(timeout = 10000)
+    public void concurrentLoadsShareOneComputation() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(REQUESTS);
+        Future<BalanceModel> owner = executor.submit(() -> coalescer.load(ACCOUNT_ID, balance -> true, () -> {
+            loads.incrementAndGet();
+            started.countDown();
+            release.await();
+            return createBalance(10L);
+        }));
+        started.await();
+
+        List<Future<BalanceModel>> waiters = new ArrayList<>();
+        for (int i = 1; i < REQUESTS; i++) {
+            waiters.add(executor.submit(() -> coalescer.load(ACCOUNT_ID, balance -> balance.getClock() >= 10L, () -> {
+                loads.incrementAndGet();
+                return createBalance(10L);
+            })));
+        }
+        awaitWaiting(REQUESTS - 1);
+        release.countDown();
+
+        Assert.assertEquals(10L, owner.get().getClock().longValue());
+        for (Future<BalanceModel> waiter : waiters) {
+            Assert.assertEquals(10L, waiter.get().getClock().longValue());
+        }
+        executor.shutdown();
+
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(REQUESTS - 1, meterRegistry.counter("balance.coalesced").count(), 0);
+    }
+
+    @Test(timeout = 10000)
+    public void staleResultIsNotShared() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<BalanceModel> owner = executor.submit(() -> coalescer.load(ACCOUNT_ID, balance -> true, () -> {
+            started.countDown();
+            release.await();
+            return createBalance(10L);
+        }));
+        started.await();
+
+        new Thread(() -> {
+            awaitWaiting(1);
+            release.countDown();
+        }).start();
+        BalanceModel balance = coalescer.load(ACCOUNT_ID, shared -> shared.getClock() >= 20L, () -> createBalance(20L));
+
+        Assert.assertEquals(20L, balance.getClock().longValue());
+        Assert.assertEquals(10L, owner.get().getClock().longValue());
+        executor.shutdown();
+        Assert.assertEquals(1, meterRegistry.counter("balance.coalesced.stale").count(), 0);
+    }
+
+    @Test
+    public void disabled() throws Exception {
+        BalanceCoalescingProperties properties = new BalanceCoalescingProperties();
+        properties.setEnabled(false);
+        BalanceLoadCoalescer disabledCoalescer = new BalanceLoadCoalescer(properties, meterRegistry);
+
+        Assert.assertEquals(5L, disabledCoalescer.load(ACCOUNT_ID, balance -> true, () -> createBalance(5L)).getClock().longValue());
+    }
+
+    private BalanceModel createBalance(long clock) {
+        return BalanceModel.builder()
+                .accountId(ACCOUNT_ID)
+                .ownAmount(100L)
+                .minAvailableAmount(100L)
+                .maxAvailableAmount(100L)
+                .clock(clock)
+                .build();
+    }
+
+    private void awaitWaiting(int waiting) {
+        while (coalescer.waiting(ACCOUNT_ID) < waiting) {
+            Thread.yield();
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.rbkmoney.shumpune.service;
+
+import com.rbkmoney.damsel.shumpune.AccountPrototype;
+import com.rbkmoney.damsel.shumpune.PostingPlan;
+import com.rbkmoney.damsel.shumpune.PostingPlanChange;
+import com.rbkmoney.shumpune.DaoTestBase;
+import com.rbkmoney.shumpune.ShumpuneApplication;
+import com.rbkmoney.shumpune.dao.AccountLogDao;
+import com.rbkmoney.shumpune.dao.PlanDao;
+import com.rbkmoney.shumpune.domain.BalanceModel;
+import com.rbkmoney.shumpune.handler.ShumpuneServiceHandler;
+import com.rbkmoney.shumpune.utils.AccountGenerator;
+import com.rbkmoney.shumpune.utils.PostingGenerator;
+import org.apache.thrift.TException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Instant;
+import java.util.List;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ShumpuneApplication.class, properties = {
+        "checkpoint.enabled=true",
+        "checkpoint.fixed-delay-ms=3600000",
+        "checkpoint.lag-threshold=2"})
+public class CheckpointServiceTest extends DaoTestBase {
+
+    @Autowired
+    ShumpuneServiceHandler handler;
+
+    @Autowired
+    CheckpointService checkpointService;
+
+    @Autowired
+    AccountLogDao accountLogDao;
+
+    @Autowired
+    PlanDao planDao;
+
+    @Test
+    public void createCheckpoints() throws TException {
+        AccountPrototype accountPrototype = AccountGenerator.createAccountPrototype(Instant.now());
+        long providerAcc = handler.createAccount(accountPrototype);
+        long merchantAcc = handler.createAccount(accountPrototype);
+        long systemAcc = handler.createAccount(accountPrototype);
+
+        PostingPlanChange postingPlanChange = PostingGenerator.createPostingPlanChange("checkpoint_plan", providerAcc, systemAcc, merchantAcc);
+        handler.hold(postingPlanChange);
+        checkpointService.createCheckpoints();
+
+        // every account has exactly two postings, which is not above the threshold
+        Assert.assertNull(accountLogDao.getLastBalanceById(providerAcc));
+
+        handler.commitPlan(new PostingPlan(postingPlanChange.getId(), List.of(postingPlanChange.getBatch())));
+        checkpointService.createCheckpoints();
+
+        for (long account : List.of(providerAcc, merchantAcc, systemAcc)) {
+            BalanceModel checkpoint = accountLogDao.getLastBalanceById(account);
+            Assert.assertNotNull(checkpoint);
+            BalanceModel expected = planDao.getBalance(account, 0L, planDao.getMaxClockByAccountId(account));
+            Assert.assertEquals(expected, checkpoint);
+        }
+    }
+
+}
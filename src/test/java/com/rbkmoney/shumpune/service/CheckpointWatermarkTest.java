@@ -0,0 +1,77 @@
+package com.rbkmoney.shumpune.service;
+
+import com.rbkmoney.shumpune.cache.BalanceCache;
+import com.rbkmoney.shumpune.config.BalanceCacheProperties;
+import com.rbkmoney.shumpune.config.CheckpointProperties;
+import com.rbkmoney.shumpune.dao.AccountLogDao;
+import com.rbkmoney.shumpune.dao.PlanDao;
+import com.rbkmoney.shumpune.domain.BalanceModel;
+import com.rbkmoney.shumpune.exception.DaoException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Map;
+
+public class CheckpointWatermarkTest {
+
+    private static final long ACCOUNT_ID = 1L;
+    private static final long MAX_CLOCK = 100L;
+
+    @Mock
+    private PlanDao planDao;
+
+    @Mock
+    private AccountLogDao accountLogDao;
+
+    private CheckpointProperties properties;
+
+    @Before
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+        properties = new CheckpointProperties();
+        Mockito.when(planDao.getMaxClock()).thenReturn(MAX_CLOCK);
+        Mockito.when(planDao.getAccountsBehindCheckpoint(Mockito.anyLong(), Mockito.anyLong(), Mockito.anyInt()))
+                .thenReturn(Map.of(ACCOUNT_ID, 5000L));
+        Mockito.when(planDao.getMaxClockByAccountId(ACCOUNT_ID)).thenReturn(MAX_CLOCK);
+        Mockito.when(planDao.getBalance(ACCOUNT_ID, 0L, MAX_CLOCK)).thenReturn(BalanceModel.builder()
+                .accountId(ACCOUNT_ID)
+                .ownAmount(0L)
+                .minAvailableAmount(0L)
+                .maxAvailableAmount(0L)
+                .clock(MAX_CLOCK)
+                .build());
+    }
+
+    @Test
+    public void failedCheckpointKeepsWatermark() {
+        Mockito.when(accountLogDao.insert(Mockito.any())).thenThrow(new DaoException("account_log is unavailable"));
+        CheckpointService checkpointService = createService();
+
+        checkpointService.createCheckpoints();
+        checkpointService.createCheckpoints();
+
+        Mockito.verify(planDao, Mockito.times(2)).getAccountsBehindCheckpoint(Mockito.eq(0L), Mockito.anyLong(), Mockito.anyInt());
+    }
+
+    @Test
+    public void manualRunWorksWhileDisabled() {
+        CheckpointService checkpointService = createService();
+
+        checkpointService.createCheckpoints();
+        checkpointService.createCheckpoints();
+
+        Mockito.verify(accountLogDao, Mockito.times(2)).insert(Mockito.any());
+        Mockito.verify(planDao).getAccountsBehindCheckpoint(Mockito.eq(MAX_CLOCK), Mockito.anyLong(), Mockito.anyInt());
+    }
+
+    private CheckpointService createService() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        return new CheckpointService(planDao, accountLogDao, new BalanceCache(new BalanceCacheProperties(), meterRegistry),
+                properties, meterRegistry);
+    }
+
+}
@@ -0,0 +1,208 @@
+package com.rbkmoney.shumpune.service;
+
+import com.rbkmoney.damsel.shumpune.AccountPrototype;
+import com.rbkmoney.damsel.shumpune.Clock;
+import com.rbkmoney.damsel.shumpune.PostingPlanChange;
+import com.rbkmoney.shumpune.DaoTestBase;
+import com.rbkmoney.shumpune.ShumpuneApplication;
+import com.rbkmoney.shumpune.dao.PlanDao;
+import com.rbkmoney.shumpune.handler.ShumpuneServiceHandler;
+import com.rbkmoney.shumpune.utils.AccountGenerator;
+import com.rbkmoney.shumpune.utils.PostingGenerator;
+import com.rbkmoney.shumpune.utils.VectorClockSerializer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.thrift.TException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ShumpuneApplication.class, properties = {
+        "group-commit.enabled=true",
+        "group-commit.window-ms=50"})
+public class GroupCommitServiceTest extends DaoTestBase {
+
+    private static final int REQUESTS = 20;
+
+    @Autowired
+    ShumpuneServiceHandler handler;
+
+    @Autowired
+    PlanDao planDao;
+
+    @Autowired
+    GroupCommitService groupCommitService;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    public void concurrentHoldsAreCommittedTogether() throws Exception {
+        AccountPrototype accountPrototype = AccountGenerator.createAccountPrototype(Instant.now());
+        long providerAcc = handler.createAccount(accountPrototype);
+        long merchantAcc = handler.createAccount(accountPrototype);
+        long systemAcc = handler.createAccount(accountPrototype);
+
+        ExecutorService executor = Executors.newFixedThreadPool(REQUESTS);
+        List<Future<Clock>> holds = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            PostingPlanChange postingPlanChange = PostingGenerator.createPostingPlanChange("group_" + i, providerAcc, systemAcc, merchantAcc);
+            holds.add(executor.submit(() -> handler.hold(postingPlanChange)));
+        }
+        PostingPlanChange broken = PostingGenerator.createPostingPlanChange("group_broken", providerAcc, 999999L, merchantAcc);
+        Future<Clock> brokenHold = executor.submit(() -> handler.hold(broken));
+
+        HashSet<Clock> clocks = new HashSet<>();
+        for (Future<Clock> hold : holds) {
+            clocks.add(hold.get());
+        }
+        Assert.assertEquals(REQUESTS, clocks.size());
+        try {
+            brokenHold.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TException);
+        }
+        executor.shutdown();
+
+        Assert.assertTrue(planDao.getPostingModelsPlanById("group_broken").isEmpty());
+        for (int i = 0; i < REQUESTS; i++) {
+            Assert.assertEquals(3, planDao.getPostingModelsPlanById("group_" + i).size());
+        }
+        long maxClock = clocks.stream().mapToLong(clock -> VectorClockSerializer.deserialize(clock.getVector())).max().orElseThrow();
+        Assert.assertEquals(-300000L * REQUESTS, planDao.getBalance(providerAcc, 0L, maxClock).getMinAvailableAmount().longValue());
+    }
+
+    @Test
+    public void failedRequestDoesNotFailItsGroup() throws Exception {
+        AccountPrototype accountPrototype = AccountGenerator.createAccountPrototype(Instant.now());
+        long providerAcc = handler.createAccount(accountPrototype);
+        long merchantAcc = handler.createAccount(accountPrototype);
+        long systemAcc = handler.createAccount(accountPrototype);
+
+        ExecutorService executor = Executors.newFixedThreadPool(REQUESTS + 2);
+        CountDownLatch release = blockWorker(executor);
+        long groups = meterRegistry.summary("group_commit.batch_size").count();
+        double retried = meterRegistry.counter("group_commit.retried").count();
+
+        List<Future<Clock>> holds = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            PostingPlanChange postingPlanChange = PostingGenerator.createPostingPlanChange("in_group_" + i, providerAcc, systemAcc, merchantAcc);
+            holds.add(executor.submit(() -> handler.hold(postingPlanChange)));
+        }
+        PostingPlanChange broken = PostingGenerator.createPostingPlanChange("in_group_broken", providerAcc, 999999L, merchantAcc);
+        Future<Clock> brokenHold = executor.submit(() -> handler.hold(broken));
+        Thread.sleep(200);
+        release.countDown();
+
+        for (Future<Clock> hold : holds) {
+            hold.get();
+        }
+        try {
+            brokenHold.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TException);
+        }
+        executor.shutdown();
+
+        Assert.assertEquals(groups + 1, meterRegistry.summary("group_commit.batch_size").count());
+        Assert.assertEquals(retried, meterRegistry.counter("group_commit.retried").count(), 0);
+        Assert.assertTrue(planDao.getPostingModelsPlanById("in_group_broken").isEmpty());
+        for (int i = 0; i < REQUESTS; i++) {
+            Assert.assertEquals(3, planDao.getPostingModelsPlanById("in_group_" + i).size());
+        }
+    }
+
+    @Test
+    public void failedGroupTransactionIsRetriedPerRequest() throws Exception {
+        AccountPrototype accountPrototype = AccountGenerator.createAccountPrototype(Instant.now());
+        long providerAcc = handler.createAccount(accountPrototype);
+        long merchantAcc = handler.createAccount(accountPrototype);
+        long systemAcc = handler.createAccount(accountPrototype);
+
+        ExecutorService executor = Executors.newFixedThreadPool(REQUESTS + 2);
+        CountDownLatch release = blockWorker(executor);
+        double retried = meterRegistry.counter("group_commit.retried").count();
+
+        List<Future<Clock>> holds = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            PostingPlanChange postingPlanChange = PostingGenerator.createPostingPlanChange("retried_" + i, providerAcc, systemAcc, merchantAcc);
+            holds.add(executor.submit(() -> handler.hold(postingPlanChange)));
+        }
+        // marks the whole group transaction rollback-only, so its commit fails
+        Future<Clock> poisoned = executor.submit(() -> groupCommitService.execute("poisoned", Set.of(), () -> transactionTemplate.execute(status -> {
+            throw new IllegalStateException("Poisoned transaction");
+        })));
+        Thread.sleep(200);
+        release.countDown();
+
+        for (Future<Clock> hold : holds) {
+            hold.get();
+        }
+        try {
+            poisoned.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof RuntimeException);
+        }
+        executor.shutdown();
+
+        Assert.assertEquals(retried + REQUESTS + 1, meterRegistry.counter("group_commit.retried").count(), 0);
+        for (int i = 0; i < REQUESTS; i++) {
+            Assert.assertEquals(3, planDao.getPostingModelsPlanById("retried_" + i).size());
+        }
+    }
+
+    @Test
+    public void workerSurvivesError() throws Exception {
+        AccountPrototype accountPrototype = AccountGenerator.createAccountPrototype(Instant.now());
+        long providerAcc = handler.createAccount(accountPrototype);
+        long merchantAcc = handler.createAccount(accountPrototype);
+        long systemAcc = handler.createAccount(accountPrototype);
+
+        try {
+            groupCommitService.execute("error", Set.of(), () -> {
+                throw new Error("Worker error");
+            });
+            Assert.fail();
+        } catch (TException e) {
+            Assert.assertTrue(e.getCause() instanceof Error);
+        }
+
+        PostingPlanChange postingPlanChange = PostingGenerator.createPostingPlanChange("after_error", providerAcc, systemAcc, merchantAcc);
+        handler.hold(postingPlanChange);
+        Assert.assertEquals(3, planDao.getPostingModelsPlanById("after_error").size());
+    }
+
+    private CountDownLatch blockWorker(ExecutorService executor) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> groupCommitService.execute("blocker", Set.of(), () -> {
+            started.countDown();
+            release.await();
+            return null;
+        }));
+        started.await();
+        return release;
+    }
+
+}
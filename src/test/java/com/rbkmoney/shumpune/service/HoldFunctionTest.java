@@ -0,0 +1,131 @@
+package com.rbkmoney.shumpune.service;
+
+import com.rbkmoney.damsel.shumpune.*;
+import com.rbkmoney.damsel.shumpune.base.InvalidRequest;
+import com.rbkmoney.shumpune.DaoTestBase;
+import com.rbkmoney.shumpune.ShumpuneApplication;
+import com.rbkmoney.shumpune.dao.PlanBatchDao;
+import com.rbkmoney.shumpune.dao.PlanDao;
+import com.rbkmoney.shumpune.domain.BalanceModel;
+import com.rbkmoney.shumpune.domain.PlanBatchModel;
+import com.rbkmoney.shumpune.handler.ShumpuneServiceHandler;
+import com.rbkmoney.shumpune.utils.AccountGenerator;
+import com.rbkmoney.shumpune.utils.FingerprintUtils;
+import com.rbkmoney.shumpune.utils.PostingGenerator;
+import org.apache.thrift.TException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Instant;
+import java.util.List;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ShumpuneApplication.class, properties = {
+        "hold-function.enabled=true",
+        "balance.running.enabled=true"})
+public class HoldFunctionTest extends DaoTestBase {
+
+    @Autowired
+    ShumpuneServiceHandler handler;
+
+    @Autowired
+    PostingPlanService postingPlanService;
+
+    @Autowired
+    PlanDao planDao;
+
+    @Autowired
+    PlanBatchDao planBatchDao;
+
+    @Test
+    public void holdAndCommit() throws TException {
+        AccountPrototype accountPrototype = AccountGenerator.createAccountPrototype(Instant.now());
+        long providerAcc = handler.createAccount(accountPrototype);
+        long merchantAcc = handler.createAccount(accountPrototype);
+        long systemAcc = handler.createAccount(accountPrototype);
+        List<Long> accounts = List.of(providerAcc, merchantAcc, systemAcc);
+
+        PostingPlanChange postingPlanChange = PostingGenerator.createPostingPlanChange("function_hold", providerAcc, systemAcc, merchantAcc);
+        postingPlanChange.getBatch().getPostings().get(0).setDescription(null);
+        Clock clock = handler.hold(postingPlanChange);
+        checkBalances(accounts, clock);
+
+        Assert.assertEquals(clock, handler.hold(postingPlanChange));
+        Assert.assertEquals(3, planDao.getPostingModelsPlanById(postingPlanChange.getId()).size());
+
+        PlanBatchModel batch = planBatchDao.getBatches(postingPlanChange.getId()).get(0);
+        Assert.assertArrayEquals(FingerprintUtils.ofPostings(postingPlanChange.getBatch().getPostings()), batch.getFingerprint());
+
+        Clock commitClock = handler.commitPlan(new PostingPlan(postingPlanChange.getId(), List.of(postingPlanChange.getBatch())));
+        checkBalances(accounts, commitClock);
+    }
+
+    @Test
+    public void invalidPostings() throws TException {
+        AccountPrototype accountPrototype = AccountGenerator.createAccountPrototype(Instant.now());
+        long providerAcc = handler.createAccount(accountPrototype);
+        long merchantAcc = handler.createAccount(accountPrototype);
+
+        PostingPlanChange postingPlanChange = PostingGenerator.createPostingPlanChange("function_invalid", providerAcc, 123456L, merchantAcc);
+        Posting sameAccounts = postingPlanChange.getBatch().getPostings().get(0).setToId(providerAcc).setAmount(-1L);
+        try {
+            postingPlanService.hold(postingPlanChange);
+            Assert.fail();
+        } catch (InvalidPostingParams e) {
+            Assert.assertEquals(3, e.getWrongPostings().size());
+            Assert.assertEquals("Source and target accounts cannot be the same; Amount cannot be negative",
+                    e.getWrongPostings().get(sameAccounts));
+        }
+        Assert.assertTrue(planDao.getPostingModelsPlanById(postingPlanChange.getId()).isEmpty());
+    }
+
+    @Test
+    public void invalidRequest() throws TException {
+        AccountPrototype accountPrototype = AccountGenerator.createAccountPrototype(Instant.now());
+        long providerAcc = handler.createAccount(accountPrototype);
+        long merchantAcc = handler.createAccount(accountPrototype);
+        long systemAcc = handler.createAccount(accountPrototype);
+
+        PostingPlanChange postingPlanChange = PostingGenerator.createPostingPlanChange("function_request", providerAcc, systemAcc, merchantAcc);
+        postingPlanChange.getBatch().setId(2L);
+        postingPlanService.hold(postingPlanChange);
+
+        postingPlanChange.getBatch().getPostings().get(0).setAmount(123L);
+        checkInvalidRequest(postingPlanChange, "Posting in batch id: 2 invalid");
+
+        postingPlanChange.getBatch().getPostings().remove(0);
+        checkInvalidRequest(postingPlanChange, "Posting in batch id: 2 size: 2 but in old size: 3");
+
+        postingPlanChange.getBatch().setId(1L);
+        Clock lowerClock = postingPlanService.hold(postingPlanChange);
+        Assert.assertEquals(lowerClock, postingPlanService.hold(postingPlanChange));
+        Assert.assertEquals(5, planDao.getPostingModelsPlanById(postingPlanChange.getId()).size());
+
+        postingPlanChange.getBatch().getPostings().clear();
+        checkInvalidRequest(postingPlanChange, "Posting batch (1) has no postings inside");
+    }
+
+    private void checkInvalidRequest(PostingPlanChange postingPlanChange, String error) throws TException {
+        try {
+            postingPlanService.hold(postingPlanChange);
+            Assert.fail();
+        } catch (InvalidRequest e) {
+            Assert.assertEquals(List.of(error), e.getErrors());
+        }
+    }
+
+    private void checkBalances(List<Long> accounts, Clock clock) throws TException {
+        for (Long account : accounts) {
+            Balance running = handler.getBalanceByID(account, clock);
+            BalanceModel expected = planDao.getBalance(account, 0L, planDao.getMaxClockByAccountId(account));
+            Assert.assertEquals(expected.getOwnAmount().longValue(), running.getOwnAmount());
+            Assert.assertEquals(expected.getMinAvailableAmount().longValue(), running.getMinAvailableAmount());
+            Assert.assertEquals(expected.getMaxAvailableAmount().longValue(), running.getMaxAvailableAmount());
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.rbkmoney.shumpune.service;
+
+import com.rbkmoney.damsel.shumpune.*;
+import com.rbkmoney.shumpune.DaoTestBase;
+import com.rbkmoney.shumpune.ShumpuneApplication;
+import com.rbkmoney.shumpune.dao.AccountLogDao;
+import com.rbkmoney.shumpune.dao.PlanDao;
+import com.rbkmoney.shumpune.domain.BalanceModel;
+import com.rbkmoney.shumpune.handler.ShumpuneServiceHandler;
+import com.rbkmoney.shumpune.utils.AccountGenerator;
+import com.rbkmoney.shumpune.utils.PostingGenerator;
+import com.rbkmoney.shumpune.utils.VectorClockSerializer;
+import org.apache.thrift.TException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ShumpuneApplication.class, properties = "balance.point-in-time.enabled=true")
+public class PointInTimeBalanceTest extends DaoTestBase {
+
+    @Autowired
+    ShumpuneServiceHandler handler;
+
+    @Autowired
+    PlanDao planDao;
+
+    @Autowired
+    AccountLogDao accountLogDao;
+
+    @Autowired
+    AccountLogWriteBehindService accountLogWriteBehindService;
+
+    @Autowired
+    AccountLogRetentionService accountLogRetentionService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void balanceAtHistoricalClock() throws TException {
+        AccountPrototype accountPrototype = AccountGenerator.createAccountPrototype(Instant.now());
+        long firstAcc = handler.createAccount(accountPrototype);
+        long secondAcc = handler.createAccount(accountPrototype);
+        long thirdAcc = handler.createAccount(accountPrototype);
+        long fourthAcc = handler.createAccount(accountPrototype);
+
+        PostingPlanChange first = PostingGenerator.createPostingPlanChange("pit_1", firstAcc, secondAcc, thirdAcc, fourthAcc, 1);
+        PostingPlanChange second = PostingGenerator.createPostingPlanChange("pit_2", firstAcc, secondAcc, thirdAcc, fourthAcc, 3);
+
+        Clock firstClock = handler.hold(first);
+        handler.getBalanceByID(firstAcc, firstClock);
+        accountLogWriteBehindService.flush();
+
+        Clock secondClock = handler.hold(second);
+        Clock thirdClock = handler.commitPlan(new PostingPlan(first.getId(), List.of(first.getBatch())));
+        handler.getBalanceByID(firstAcc, Clock.latest(new LatestClock()));
+        accountLogWriteBehindService.flush();
+
+        for (Clock clock : List.of(firstClock, secondClock, thirdClock)) {
+            long clockValue = VectorClockSerializer.deserialize(clock.getVector());
+            Balance balance = handler.getBalanceByID(firstAcc, clock);
+            BalanceModel expected = planDao.getBalance(firstAcc, 0L, clockValue);
+            Assert.assertEquals(expected.getOwnAmount().longValue(), balance.getOwnAmount());
+            Assert.assertEquals(expected.getMinAvailableAmount().longValue(), balance.getMinAvailableAmount());
+            Assert.assertEquals(expected.getMaxAvailableAmount().longValue(), balance.getMaxAvailableAmount());
+        }
+
+        Balance latest = handler.getBalanceByID(firstAcc, Clock.latest(new LatestClock()));
+        Balance atSecond = handler.getBalanceByID(firstAcc, secondClock);
+        Assert.assertNotEquals(latest.getOwnAmount(), atSecond.getOwnAmount());
+    }
+
+    @Test
+    public void retentionKeepsLastCheckpointPerBucket() {
+        long accountId = 424242L;
+        for (long clock = 1; clock <= 5; clock++) {
+            accountLogDao.insert(BalanceModel.builder()
+                    .accountId(accountId)
+                    .ownAmount(clock)
+                    .minAvailableAmount(clock)
+                    .maxAvailableAmount(clock)
+                    .clock(clock)
+                    .build());
+        }
+        Instant now = Instant.now();
+        jdbcTemplate.update("update shm.account_log set creation_time = ? where account_id = ? and clock <= 2",
+                LocalDateTime.ofInstant(now.minus(40, ChronoUnit.DAYS), ZoneOffset.UTC).truncatedTo(ChronoUnit.DAYS), accountId);
+        jdbcTemplate.update("update shm.account_log set creation_time = ? where account_id = ? and clock in (3, 4)",
+                LocalDateTime.ofInstant(now.minus(2, ChronoUnit.DAYS), ZoneOffset.UTC).truncatedTo(ChronoUnit.HOURS), accountId);
+
+        Assert.assertEquals(2, accountLogRetentionService.applyRetention(now));
+
+        Assert.assertNull(accountLogDao.getBalanceAtClock(accountId, 1L));
+        Assert.assertEquals(2L, accountLogDao.getBalanceAtClock(accountId, 3L).getClock().longValue());
+        Assert.assertEquals(4L, accountLogDao.getBalanceAtClock(accountId, 4L).getClock().longValue());
+        Assert.assertEquals(5L, accountLogDao.getLastBalanceById(accountId).getClock().longValue());
+    }
+
+}
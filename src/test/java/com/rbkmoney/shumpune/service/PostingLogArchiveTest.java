@@ -0,0 +1,151 @@
+package com.rbkmoney.shumpune.service;
+
+import com.rbkmoney.damsel.shumpune.Clock;
+import com.rbkmoney.damsel.shumpune.LatestClock;
+import com.rbkmoney.shumpune.DaoTestBase;
+import com.rbkmoney.shumpune.ShumpuneApplication;
+import com.rbkmoney.shumpune.constant.PostingOperation;
+import com.rbkmoney.shumpune.dao.PlanDao;
+import com.rbkmoney.shumpune.domain.BalanceModel;
+import com.rbkmoney.shumpune.domain.PostingModel;
+import com.rbkmoney.shumpune.utils.VectorClockSerializer;
+import org.apache.thrift.TException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ShumpuneApplication.class, properties = {
+        "posting-log.partition.enabled=false",
+        "posting-log.archive.keep-partitions=1",
+        "balance.point-in-time.enabled=true",
+        "cache.balance.enabled=false",
+        "account-log.write-behind.enabled=false"})
+public class PostingLogArchiveTest extends DaoTestBase {
+
+    private static final int PLANS = 4;
+    private static final int POSTINGS_PER_PLAN = 1000;
+    private static final int ACCOUNTS = 101;
+
+    @Autowired
+    PostingLogArchiveService postingLogArchiveService;
+
+    @Autowired
+    PostingPlanService postingPlanService;
+
+    @Autowired
+    PlanDao planDao;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void archivedPartitionsStayReadable() throws TException {
+        Long lastBound = jdbcTemplate.queryForObject("select max(to_id) from shm.posting_log_partition", Long.class);
+        // every plan fills exactly one partition
+        jdbcTemplate.queryForObject("select setval('shm.posting_log_id_seq', ?)", Long.class, lastBound - 1);
+        planDao.createPartitions(1000, 5);
+
+        Instant creationTime = Instant.now();
+        long firstClock = Collections.max(planDao.insertPostings(postings("archive_0", creationTime)).values());
+        for (int plan = 1; plan < PLANS; plan++) {
+            planDao.insertPostings(postings("archive_" + plan, creationTime));
+        }
+        jdbcTemplate.update("insert into shm.plan(id, status, max_batch_id, clock, posting_count) " +
+                "select plan_id, 'HOLD', 1, max(id), count(*) from shm.posting_log where plan_id like 'archive_%' group by plan_id");
+        Clock first = Clock.vector(VectorClockSerializer.serialize(firstClock));
+
+        // only the empty initial partitions can go, the postings are not checkpointed yet
+        Assert.assertEquals(3, postingLogArchiveService.archive());
+
+        Map<Long, BalanceModel> latest = new HashMap<>();
+        Map<Long, BalanceModel> historical = new HashMap<>();
+        for (long accountId = 0; accountId < ACCOUNTS; accountId++) {
+            latest.put(accountId, postingPlanService.getBalanceById(accountId, Clock.latest(new LatestClock())));
+            historical.put(accountId, postingPlanService.getBalanceById(accountId, first));
+        }
+
+        // checkpointed, but the plans are still held
+        Assert.assertEquals(0, postingLogArchiveService.archive());
+
+        finalizePlan("archive_0", firstClock);
+        Assert.assertEquals(1, postingLogArchiveService.archive());
+
+        // finalized, but its commit postings are past the partition and still hot
+        finalizePlan("archive_1", firstClock + 2 * POSTINGS_PER_PLAN);
+        Assert.assertEquals(0, postingLogArchiveService.archive());
+
+        finalizePlan("archive_1", firstClock + POSTINGS_PER_PLAN);
+        Assert.assertEquals(1, postingLogArchiveService.archive());
+        Assert.assertEquals(0, postingLogArchiveService.archive());
+        Long hotRows = jdbcTemplate.queryForObject("select count(*) from shm.posting_log", Long.class);
+        Assert.assertEquals((PLANS - 2) * POSTINGS_PER_PLAN, hotRows.longValue());
+
+        for (long accountId = 0; accountId < ACCOUNTS; accountId++) {
+            assertBalance(latest.get(accountId), postingPlanService.getBalanceById(accountId, Clock.latest(new LatestClock())));
+            assertBalance(latest.get(accountId), postingPlanService.getBalanceById(accountId,
+                    Clock.vector(VectorClockSerializer.serialize(latest.get(accountId).getClock()))));
+            assertBalance(historical.get(accountId), postingPlanService.getBalanceById(accountId, first));
+        }
+        List<Long> accountIds = LongStream.range(0, ACCOUNTS).boxed().collect(Collectors.toList());
+        List<BalanceModel> bulk = postingPlanService.getBalancesByIds(accountIds, first);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            assertBalance(historical.get((long) i), bulk.get(i));
+        }
+
+        Assert.assertEquals(POSTINGS_PER_PLAN, planDao.getPostingModelsPlanById("archive_0").size());
+        Assert.assertEquals(POSTINGS_PER_PLAN, planDao.getPostingLogs("archive_1", PostingOperation.HOLD).get(1L).size());
+        Assert.assertTrue(planDao.getPostingModelsPlanById("archive_unknown").isEmpty());
+
+        // a plan with archived and hot rows is read whole
+        planDao.insertPostings(postings("archive_0", creationTime, PostingOperation.COMMIT));
+        Assert.assertEquals(2 * POSTINGS_PER_PLAN, planDao.getPostingModelsPlanById("archive_0").size());
+        Assert.assertEquals(2 * POSTINGS_PER_PLAN, planDao.getPostingColumnsByPlanId("archive_0").size());
+        Assert.assertEquals(POSTINGS_PER_PLAN, planDao.getPostingLogs("archive_0", PostingOperation.HOLD).get(1L).size());
+        Assert.assertEquals(POSTINGS_PER_PLAN, planDao.getPostingLogs("archive_0", PostingOperation.COMMIT).get(1L).size());
+    }
+
+    private void finalizePlan(String planId, long clock) {
+        jdbcTemplate.update("update shm.plan set status = 'COMMIT', clock = ? where id = ?", clock, planId);
+    }
+
+    private void assertBalance(BalanceModel expected, BalanceModel actual) {
+        Assert.assertEquals(expected.getOwnAmount(), actual.getOwnAmount());
+        Assert.assertEquals(expected.getMinAvailableAmount(), actual.getMinAvailableAmount());
+        Assert.assertEquals(expected.getMaxAvailableAmount(), actual.getMaxAvailableAmount());
+        Assert.assertEquals(expected.getClock(), actual.getClock());
+    }
+
+    private List<PostingModel> postings(String planId, Instant creationTime) {
+        return postings(planId, creationTime, PostingOperation.HOLD);
+    }
+
+    private List<PostingModel> postings(String planId, Instant creationTime, PostingOperation operation) {
+        return IntStream.range(0, POSTINGS_PER_PLAN)
+                .mapToObj(i -> PostingModel.builder()
+                        .planId(planId)
+                        .batchId(1L)
+                        .accountFromId((long) i % 100)
+                        .accountToId((long) i % 100 + 1)
+                        .amount((long) i % 100 + 1)
+                        .currencySymbCode("RUB")
+                        .creationTime(creationTime)
+                        .operation(operation)
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.rbkmoney.shumpune.service;
+
+import com.rbkmoney.damsel.shumpune.*;
+import com.rbkmoney.shumpune.DaoTestBase;
+import com.rbkmoney.shumpune.ShumpuneApplication;
+import com.rbkmoney.shumpune.dao.PlanDao;
+import com.rbkmoney.shumpune.domain.BalanceModel;
+import com.rbkmoney.shumpune.handler.ShumpuneServiceHandler;
+import com.rbkmoney.shumpune.utils.AccountGenerator;
+import com.rbkmoney.shumpune.utils.PostingGenerator;
+import org.apache.thrift.TException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Instant;
+import java.util.List;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ShumpuneApplication.class, properties = "balance.running.enabled=true")
+public class RunningBalanceTest extends DaoTestBase {
+
+    @Autowired
+    ShumpuneServiceHandler handler;
+
+    @Autowired
+    PlanDao planDao;
+
+    @Test
+    public void runningBalanceMatchesPostingLog() throws TException {
+        AccountPrototype accountPrototype = AccountGenerator.createAccountPrototype(Instant.now());
+        long firstAcc = handler.createAccount(accountPrototype);
+        long secondAcc = handler.createAccount(accountPrototype);
+        long thirdAcc = handler.createAccount(accountPrototype);
+        long fourthAcc = handler.createAccount(accountPrototype);
+        List<Long> accounts = List.of(firstAcc, secondAcc, thirdAcc, fourthAcc);
+
+        PostingPlanChange first = PostingGenerator.createPostingPlanChange("running_1", firstAcc, secondAcc, thirdAcc, fourthAcc, 1);
+        PostingPlanChange second = PostingGenerator.createPostingPlanChange("running_2", firstAcc, secondAcc, thirdAcc, fourthAcc, 3);
+
+        checkBalances(accounts, handler.hold(first));
+        checkBalances(accounts, handler.hold(second));
+        checkBalances(accounts, handler.commitPlan(new PostingPlan(first.getId(), List.of(first.getBatch()))));
+        checkBalances(accounts, handler.rollbackPlan(new PostingPlan(second.getId(), List.of(second.getBatch()))));
+
+        Balance unknownAccount = handler.getBalanceByID(12321L, Clock.latest(new LatestClock()));
+        Assert.assertEquals(0L, unknownAccount.getOwnAmount());
+    }
+
+    private void checkBalances(List<Long> accounts, Clock clock) throws TException {
+        for (Long account : accounts) {
+            Balance running = handler.getBalanceByID(account, clock);
+            BalanceModel expected = planDao.getBalance(account, 0L, planDao.getMaxClockByAccountId(account));
+            Assert.assertEquals(expected.getOwnAmount().longValue(), running.getOwnAmount());
+            Assert.assertEquals(expected.getMinAvailableAmount().longValue(), running.getMinAvailableAmount());
+            Assert.assertEquals(expected.getMaxAvailableAmount().longValue(), running.getMaxAvailableAmount());
+        }
+    }
+
+}
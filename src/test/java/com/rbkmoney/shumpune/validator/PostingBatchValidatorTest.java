@@ -8,6 +8,7 @@ import com.rbkmoney.damsel.shumpune.base.InvalidRequest;
 import com.rbkmoney.shumpune.dao.AccountDao;
 import org.apache.thrift.TException;
 import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -15,7 +16,9 @@ import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
 import java.util.ArrayList;
-import java.util.Optional;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class PostingBatchValidatorTest {
 
@@ -65,17 +68,16 @@ public class PostingBatchValidatorTest {
                 .setCurrencySymCode(RUB));
         batch.setPostings(postings);
 
-        Mockito.when(accountDao.getAccountById(1L)).thenReturn(createAccount(1L));
-        Mockito.when(accountDao.getAccountById(2L)).thenReturn(createAccount(2L));
+        Mockito.when(accountDao.getAccountsByIds(Set.of(1L, 2L))).thenReturn(Map.of(1L, createAccount(1L), 2L, createAccount(2L)));
 
         postingBatchValidator.validate(batch, PLAN_ID);
     }
 
     @NotNull
-    private Optional<Account> createAccount(long l) {
-        return Optional.of(new Account()
+    private Account createAccount(long l) {
+        return new Account()
                 .setId(l)
-                .setCurrencySymCode(RUB));
+                .setCurrencySymCode(RUB);
     }
 
     @Test(expected = InvalidPostingParams.class)
@@ -90,8 +92,7 @@ public class PostingBatchValidatorTest {
                 .setCurrencySymCode("USD"));
         batch.setPostings(postings);
 
-        Mockito.when(accountDao.getAccountById(1L)).thenReturn(createAccount(1L));
-        Mockito.when(accountDao.getAccountById(2L)).thenReturn(createAccount(2L));
+        Mockito.when(accountDao.getAccountsByIds(Set.of(1L, 2L))).thenReturn(Map.of(1L, createAccount(1L), 2L, createAccount(2L)));
 
         postingBatchValidator.validate(batch, PLAN_ID);
     }
@@ -108,9 +109,37 @@ public class PostingBatchValidatorTest {
                 .setCurrencySymCode(RUB));
         batch.setPostings(postings);
 
-        Mockito.when(accountDao.getAccountById(1L)).thenReturn(createAccount(1L));
-        Mockito.when(accountDao.getAccountById(2L)).thenReturn(createAccount(2L));
+        Mockito.when(accountDao.getAccountsByIds(Set.of(1L, 2L))).thenReturn(Map.of(1L, createAccount(1L), 2L, createAccount(2L)));
 
         postingBatchValidator.validate(batch, PLAN_ID);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void validatePlanWithOneAccountsQuery() throws TException {
+        PostingBatch first = new PostingBatch()
+                .setId(1L)
+                .setPostings(List.of(
+                        new Posting().setAmount(100L).setFromId(1L).setToId(2L).setCurrencySymCode(RUB),
+                        new Posting().setAmount(100L).setFromId(2L).setToId(1L).setCurrencySymCode(RUB)));
+        PostingBatch second = new PostingBatch()
+                .setId(2L)
+                .setPostings(List.of(
+                        new Posting().setAmount(100L).setFromId(2L).setToId(3L).setCurrencySymCode(RUB),
+                        new Posting().setAmount(-1L).setFromId(3L).setToId(3L).setCurrencySymCode("USD")));
+
+        Mockito.when(accountDao.getAccountsByIds(Set.of(1L, 2L, 3L))).thenReturn(Map.of(1L, createAccount(1L), 2L, createAccount(2L)));
+
+        try {
+            postingBatchValidator.validateBatches(List.of(first, second), PLAN_ID);
+            Assert.fail();
+        } catch (InvalidPostingParams e) {
+            Assert.assertEquals(Map.of(
+                    second.getPostings().get(0), "Account for posting not found!",
+                    second.getPostings().get(1), "Source and target accounts cannot be the same; Amount cannot be negative; " +
+                            "Account for posting not found!"),
+                    e.getWrongPostings());
+        }
+        Mockito.verify(accountDao, Mockito.times(1)).getAccountsByIds(Mockito.anyCollection());
+        Mockito.verify(accountDao, Mockito.never()).getAccountById(Mockito.anyLong());
+    }
+}
@@ -4,13 +4,16 @@ import com.rbkmoney.damsel.shumpune.Posting;
 import com.rbkmoney.damsel.shumpune.PostingBatch;
 import com.rbkmoney.damsel.shumpune.PostingPlan;
 import com.rbkmoney.damsel.shumpune.base.InvalidRequest;
+import com.rbkmoney.shumpune.domain.PlanBatchModel;
 import com.rbkmoney.shumpune.domain.PostingModel;
+import com.rbkmoney.shumpune.utils.FingerprintUtils;
 import org.apache.thrift.TException;
 import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class PostingsUpdateValidatorTest {
 
@@ -23,9 +26,9 @@ public class PostingsUpdateValidatorTest {
 
     @Test(expected = InvalidRequest.class)
     public void validateBatchLowerThanSaved() throws TException {
-        HashMap<Long, List<PostingModel>> savedBatches = new HashMap<>();
+        HashMap<Long, PlanBatchModel> savedBatches = new HashMap<>();
         long idBatch = 2L;
-        savedBatches.put(idBatch, new ArrayList<>());
+        savedBatches.put(idBatch, savedBatch(idBatch, new ArrayList<>()));
         PostingPlan receivedPostingPlan = new PostingPlan();
         ArrayList<PostingBatch> batchList = new ArrayList<>();
         PostingBatch postingBatch = new PostingBatch();
@@ -40,11 +43,12 @@ public class PostingsUpdateValidatorTest {
 
     @Test(expected = InvalidRequest.class)
     public void validateBatchSize() throws TException {
-        HashMap<Long, List<PostingModel>> savedBatches = new HashMap<>();
+        HashMap<Long, PlanBatchModel> savedBatches = new HashMap<>();
         long idBatch = 2L;
-        ArrayList<PostingModel> postingModels = new ArrayList<>();
-        postingModels.add(new PostingModel());
-        savedBatches.put(idBatch, postingModels);
+        savedBatches.put(idBatch, PlanBatchModel.builder()
+                .batchId(idBatch)
+                .size(1)
+                .build());
         PostingPlan receivedPostingPlan = new PostingPlan();
         ArrayList<PostingBatch> batchList = new ArrayList<>();
         PostingBatch postingBatch = new PostingBatch();
@@ -56,7 +60,7 @@ public class PostingsUpdateValidatorTest {
 
     @Test(expected = InvalidRequest.class)
     public void validateBatchPosting() throws TException {
-        HashMap<Long, List<PostingModel>> savedBatches = new HashMap<>();
+        HashMap<Long, PlanBatchModel> savedBatches = new HashMap<>();
         long idBatch = 2L;
         ArrayList<PostingModel> postingModels = new ArrayList<>();
         postingModels.add(PostingModel.builder()
@@ -66,7 +70,7 @@ public class PostingsUpdateValidatorTest {
                 .accountToId(TO_ID)
                 .description(DESCRIPTION)
                 .build());
-        savedBatches.put(idBatch, postingModels);
+        savedBatches.put(idBatch, savedBatch(idBatch, postingModels));
         PostingPlan receivedPostingPlan = new PostingPlan();
         ArrayList<PostingBatch> batchList = new ArrayList<>();
         PostingBatch postingBatch = new PostingBatch();
@@ -83,4 +87,59 @@ public class PostingsUpdateValidatorTest {
         receivedPostingPlan.setBatchList(batchList);
         postingsUpdateValidator.validate(receivedPostingPlan.getBatchList(), savedBatches);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void validateSameBatchInOtherOrder() throws TException {
+        List<PostingModel> postingModels = List.of(
+                createModel(AMOUNT, DESCRIPTION),
+                createModel(AMOUNT, DESCRIPTION),
+                createModel(AMOUNT + 1, null));
+        PostingBatch postingBatch = new PostingBatch(2L, List.of(
+                createPosting(AMOUNT + 1, null),
+                createPosting(AMOUNT, DESCRIPTION),
+                createPosting(AMOUNT, DESCRIPTION)));
+
+        postingsUpdateValidator.validate(List.of(postingBatch), Map.of(2L, savedBatch(2L, postingModels)));
+    }
+
+    @Test(expected = InvalidRequest.class)
+    public void validateBatchWithOtherMultiplicity() throws TException {
+        List<PostingModel> postingModels = List.of(
+                createModel(AMOUNT, DESCRIPTION),
+                createModel(AMOUNT, DESCRIPTION),
+                createModel(AMOUNT + 1, DESCRIPTION));
+        PostingBatch postingBatch = new PostingBatch(2L, List.of(
+                createPosting(AMOUNT, DESCRIPTION),
+                createPosting(AMOUNT + 1, DESCRIPTION),
+                createPosting(AMOUNT + 1, DESCRIPTION)));
+
+        postingsUpdateValidator.validate(List.of(postingBatch), Map.of(2L, savedBatch(2L, postingModels)));
+    }
+
+    private PlanBatchModel savedBatch(long batchId, List<PostingModel> postingModels) {
+        return PlanBatchModel.builder()
+                .batchId(batchId)
+                .size(postingModels.size())
+                .fingerprint(FingerprintUtils.ofModels(postingModels))
+                .build();
+    }
+
+    private PostingModel createModel(long amount, String description) {
+        return PostingModel.builder()
+                .amount(amount)
+                .currencySymbCode(RUB)
+                .accountFromId(FROM_ID)
+                .accountToId(TO_ID)
+                .description(description)
+                .build();
+    }
+
+    private Posting createPosting(long amount, String description) {
+        return new Posting()
+                .setAmount(amount)
+                .setCurrencySymCode(RUB)
+                .setFromId(FROM_ID)
+                .setToId(TO_ID)
+                .setDescription(description);
+    }
+}